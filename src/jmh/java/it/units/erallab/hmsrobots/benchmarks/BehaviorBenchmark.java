@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.benchmarks;
+
+import it.units.erallab.hmsrobots.behavior.BehaviorUtils;
+import it.units.erallab.hmsrobots.behavior.Footprint;
+import it.units.erallab.hmsrobots.behavior.Gait;
+import it.units.erallab.hmsrobots.core.snapshots.VoxelPoly;
+import it.units.erallab.hmsrobots.tasks.locomotion.Locomotion;
+import it.units.erallab.hmsrobots.tasks.locomotion.Outcome;
+import org.dyn4j.dynamics.Settings;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BehaviorBenchmark {
+
+  private static final double INTERVAL = 0.25d;
+  private static final double LONGEST_INTERVAL = 5d;
+  private static final int N = 4;
+
+  private SortedMap<Double, Footprint> footprints;
+
+  @Setup
+  public void setup() {
+    Outcome outcome = new Locomotion(
+        20,
+        Locomotion.createTerrain(BenchmarkUtils.TERRAIN),
+        new Settings()
+    ).apply(BenchmarkUtils.centralizedRobot("biped-4x3", BenchmarkUtils.SENSORS, new Random(1)));
+    SortedMap<Double, Collection<? extends VoxelPoly>> polies = new TreeMap<>();
+    outcome.getObservations().forEach((t, o) -> polies.put(
+        t,
+        o.voxelPolies().values().stream().filter(Objects::nonNull).toList()
+    ));
+    footprints = BehaviorUtils.computeQuantizedFootprints(INTERVAL, polies, N);
+  }
+
+  @Benchmark
+  public List<Gait> computeGaits() {
+    return BehaviorUtils.computeGaits(footprints, 2, (int) Math.round(LONGEST_INTERVAL / INTERVAL), INTERVAL);
+  }
+
+}
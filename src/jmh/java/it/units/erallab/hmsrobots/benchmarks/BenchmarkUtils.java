@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.benchmarks;
+
+import it.units.erallab.hmsrobots.core.controllers.CentralizedSensing;
+import it.units.erallab.hmsrobots.core.controllers.MultiLayerPerceptron;
+import it.units.erallab.hmsrobots.core.objects.Ground;
+import it.units.erallab.hmsrobots.core.objects.Robot;
+import it.units.erallab.hmsrobots.core.objects.Voxel;
+import it.units.erallab.hmsrobots.tasks.locomotion.Locomotion;
+import it.units.erallab.hmsrobots.util.Grid;
+import it.units.erallab.hmsrobots.util.RobotUtils;
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.dynamics.Settings;
+import org.dyn4j.geometry.Vector2;
+import org.dyn4j.world.World;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+class BenchmarkUtils {
+
+  static final String SENSORS = "uniform-a+t+r+vxy-0";
+  static final String TERRAIN = "hilly-1-10-0";
+
+  private BenchmarkUtils() {
+  }
+
+  static Robot centralizedRobot(String shape, String sensors, RandomGenerator random) {
+    Grid<Voxel> body = RobotUtils.buildSensorizingFunction(sensors).apply(RobotUtils.buildShape(shape));
+    CentralizedSensing controller = new CentralizedSensing(body);
+    MultiLayerPerceptron mlp = new MultiLayerPerceptron(
+        MultiLayerPerceptron.ActivationFunction.TANH,
+        controller.nOfInputs(),
+        new int[]{controller.nOfInputs()},
+        controller.nOfOutputs()
+    );
+    mlp.setParams(randomize(mlp.getParams(), random));
+    controller.setFunction(mlp);
+    return new Robot(controller, body);
+  }
+
+  static double[] randomize(double[] values, RandomGenerator random) {
+    for (int i = 0; i < values.length; i++) {
+      values[i] = random.nextDouble() * 2d - 1d;
+    }
+    return values;
+  }
+
+  /**
+   * Places the robot on the terrain as {@link Locomotion} does and simulates it for {@code t} seconds, so that voxels
+   * and sensors are in a realistic state.
+   */
+  static World<Body> settle(Robot robot, String terrain, double t) {
+    double[][] groundProfile = Locomotion.createTerrain(terrain);
+    World<Body> world = new World<>();
+    world.setSettings(new Settings());
+    Ground ground = new Ground(groundProfile[0], groundProfile[1]);
+    ground.addTo(world);
+    robot.reset();
+    robot.translate(new Vector2(
+        groundProfile[0][1] + Locomotion.INITIAL_PLACEMENT_X_GAP - robot.boundingBox().min().x(),
+        0
+    ));
+    double minYGap = Locomotion.minYGap(robot, ground);
+    robot.translate(new Vector2(0, Locomotion.INITIAL_PLACEMENT_Y_GAP - minYGap));
+    robot.addTo(world);
+    double dT = world.getSettings().getStepFrequency();
+    double time = 0d;
+    while (time < t) {
+      time = time + dT;
+      world.step(1);
+      robot.act(time);
+    }
+    return world;
+  }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.benchmarks;
+
+import it.units.erallab.hmsrobots.core.controllers.MultiLayerPerceptron;
+import it.units.erallab.hmsrobots.core.controllers.SelfAttention;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ControllerBenchmark {
+
+  @Param({"16", "64"})
+  public int size;
+
+  private MultiLayerPerceptron mlp;
+  private SelfAttention selfAttention;
+  private double[] mlpInput;
+  private double[] mlpOutput;
+  private double[] selfAttentionInput;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(1);
+    //mlp
+    mlp = new MultiLayerPerceptron(MultiLayerPerceptron.ActivationFunction.TANH, size, new int[]{size, size}, size);
+    mlp.setParams(BenchmarkUtils.randomize(mlp.getParams(), random));
+    mlpInput = BenchmarkUtils.randomize(new double[size], random);
+    mlpOutput = new double[size];
+    //self attention: size tokens of size values
+    int dk = 4;
+    MultiLayerPerceptron downstream = new MultiLayerPerceptron(
+        MultiLayerPerceptron.ActivationFunction.TANH,
+        size * size,
+        new int[0],
+        size
+    );
+    selfAttention = new SelfAttention(
+        downstream,
+        size,
+        size,
+        dk,
+        new double[size][dk],
+        new double[size][dk],
+        new double[dk],
+        new double[dk]
+    );
+    selfAttention.setParams(BenchmarkUtils.randomize(selfAttention.getParams(), random));
+    selfAttentionInput = BenchmarkUtils.randomize(new double[size * size], random);
+  }
+
+  @Benchmark
+  public double[] multiLayerPerceptronApply() {
+    return mlp.apply(mlpInput);
+  }
+
+  @Benchmark
+  public double[] multiLayerPerceptronApplyReusingOutput() {
+    return mlp.apply(mlpInput, mlpOutput);
+  }
+
+  @Benchmark
+  public double[] selfAttentionApply() {
+    return selfAttention.apply(selfAttentionInput);
+  }
+
+}
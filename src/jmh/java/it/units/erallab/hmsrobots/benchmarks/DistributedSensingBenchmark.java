@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.benchmarks;
+
+import it.units.erallab.hmsrobots.core.controllers.DistributedSensing;
+import it.units.erallab.hmsrobots.core.controllers.MultiLayerPerceptron;
+import it.units.erallab.hmsrobots.core.objects.Robot;
+import it.units.erallab.hmsrobots.core.objects.Voxel;
+import it.units.erallab.hmsrobots.util.DoubleGrid;
+import it.units.erallab.hmsrobots.util.Grid;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DistributedSensingBenchmark {
+
+  @Param({"16", "64"})
+  public int nOfVoxels;
+  @Param({"false", "true"})
+  public boolean sharedWeights;
+
+  private DistributedSensing distributedSensing;
+  private Grid<Voxel> voxels;
+  private double t;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(1);
+    Robot robot = BenchmarkUtils.centralizedRobot(
+        String.format("box-%dx%d", nOfVoxels / 4, 4),
+        BenchmarkUtils.SENSORS,
+        random
+    );
+    voxels = robot.getVoxels();
+    distributedSensing = new DistributedSensing(voxels, 1);
+    double[] params = null;
+    for (Grid.Entry<Voxel> entry : voxels) {
+      MultiLayerPerceptron mlp = new MultiLayerPerceptron(
+          MultiLayerPerceptron.ActivationFunction.TANH,
+          distributedSensing.nOfInputs(entry.key().x(), entry.key().y()),
+          new int[]{8},
+          distributedSensing.nOfOutputs(entry.key().x(), entry.key().y())
+      );
+      if (params == null || !sharedWeights) {
+        params = BenchmarkUtils.randomize(mlp.getParams(), random);
+      }
+      mlp.setParams(params);
+      distributedSensing.getFunctions().set(entry.key().x(), entry.key().y(), mlp);
+    }
+    BenchmarkUtils.settle(new Robot(distributedSensing, voxels), BenchmarkUtils.TERRAIN, 1d);
+    t = 1d;
+  }
+
+  @Benchmark
+  public DoubleGrid computeControlSignals() {
+    t = t + 1d / 60d;
+    return distributedSensing.computeControlSignals(t, voxels);
+  }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.benchmarks;
+
+import it.units.erallab.hmsrobots.core.objects.Robot;
+import it.units.erallab.hmsrobots.tasks.locomotion.Locomotion;
+import it.units.erallab.hmsrobots.tasks.locomotion.Outcome;
+import org.dyn4j.dynamics.Settings;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class LocomotionBenchmark {
+
+  @Param({"biped-4x3", "worm-5x2", "ball-7", "comb-7x2", "tripod-5x3"})
+  public String shape;
+  @Param({"10"})
+  public double finalT;
+
+  private Locomotion locomotion;
+  private Robot robot;
+
+  @Setup
+  public void setup() {
+    locomotion = new Locomotion(finalT, Locomotion.createTerrain(BenchmarkUtils.TERRAIN), new Settings());
+    robot = BenchmarkUtils.centralizedRobot(shape, BenchmarkUtils.SENSORS, new Random(1));
+  }
+
+  @Benchmark
+  public Outcome apply() {
+    return locomotion.apply(robot);
+  }
+
+}
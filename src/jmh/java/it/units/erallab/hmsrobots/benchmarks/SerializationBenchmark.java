@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.benchmarks;
+
+import it.units.erallab.hmsrobots.core.objects.Robot;
+import it.units.erallab.hmsrobots.util.SerializationUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+  @Param({"JAVA", "JSON", "GZIPPED_JAVA", "GZIPPED_JSON"})
+  public SerializationUtils.Mode mode;
+
+  private Robot robot;
+
+  @Setup
+  public void setup() {
+    robot = BenchmarkUtils.centralizedRobot("biped-4x3", BenchmarkUtils.SENSORS, new Random(1));
+  }
+
+  @Benchmark
+  public Robot roundTrip() {
+    return SerializationUtils.deserialize(SerializationUtils.serialize(robot, mode), Robot.class, mode);
+  }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.benchmarks;
+
+import it.units.erallab.hmsrobots.core.objects.Robot;
+import it.units.erallab.hmsrobots.core.objects.Voxel;
+import it.units.erallab.hmsrobots.core.sensors.CompositeSensor;
+import it.units.erallab.hmsrobots.core.sensors.Lidar;
+import it.units.erallab.hmsrobots.core.sensors.LidarEngine;
+import it.units.erallab.hmsrobots.core.sensors.Sensor;
+import it.units.erallab.hmsrobots.core.snapshots.VoxelPoly;
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.geometry.Vector2;
+import org.dyn4j.world.World;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VoxelBenchmark {
+
+  private static final Vector2 ZERO = new Vector2(0d, 0d);
+
+  @Param({"biped-4x3"})
+  public String shape;
+
+  private World<Body> world;
+  private Voxel voxel;
+  private Lidar lidar;
+  private LidarEngine lidarEngine;
+
+  private static Lidar findLidar(Sensor sensor) {
+    if (sensor instanceof Lidar l) {
+      return l;
+    }
+    if (sensor instanceof CompositeSensor compositeSensor) {
+      return findLidar(compositeSensor.getSensor());
+    }
+    return null;
+  }
+
+  @Setup
+  public void setup() {
+    Robot robot = BenchmarkUtils.centralizedRobot(shape, "uniform-t+a+l5-0", new Random(1));
+    world = BenchmarkUtils.settle(robot, BenchmarkUtils.TERRAIN, 2d);
+    voxel = robot.getVoxels().values().stream().filter(Objects::nonNull).findFirst().orElseThrow();
+    lidar = voxel.getSensors().stream().map(VoxelBenchmark::findLidar).filter(Objects::nonNull).findFirst().orElseThrow();
+    lidar.sense(0d);
+    lidarEngine = world.getStepListeners().stream()
+        .filter(l -> l instanceof LidarEngine)
+        .map(l -> (LidarEngine) l)
+        .findFirst()
+        .orElseThrow();
+  }
+
+  @Benchmark
+  public VoxelPoly getVoxelPoly() {
+    //a null translation invalidates the state of the voxel as a world step does
+    voxel.translate(ZERO);
+    return voxel.getVoxelPoly();
+  }
+
+  @Benchmark
+  public VoxelPoly getVoxelPolyCached() {
+    return voxel.getVoxelPoly();
+  }
+
+  @Benchmark
+  public double[] lidarSense() {
+    return lidar.sense(0d);
+  }
+
+  @Benchmark
+  public double[] lidarSenseAfterStep() {
+    //ending a step makes the engine update itself as a world step does
+    lidarEngine.end(null, world);
+    return lidar.sense(0d);
+  }
+
+}
@@ -23,6 +23,7 @@ import it.units.erallab.hmsrobots.core.geometry.Shape;
 import it.units.erallab.hmsrobots.core.snapshots.RobotShape;
 import it.units.erallab.hmsrobots.core.snapshots.Snapshot;
 import it.units.erallab.hmsrobots.core.snapshots.VoxelPoly;
+import it.units.erallab.hmsrobots.util.BooleanGrid;
 import it.units.erallab.hmsrobots.util.DoubleRange;
 import it.units.erallab.hmsrobots.util.Grid;
 import org.apache.commons.math3.complex.Complex;
@@ -56,31 +57,41 @@ public class BehaviorUtils {
   }
 
   public static Grid<Boolean> computeAveragePosture(Collection<Grid<Boolean>> postures) {
-    int w = postures.iterator().next().getW();
-    int h = postures.iterator().next().getH();
-    return Grid.create(
-        w,
-        h,
-        (x, y) -> postures.stream().mapToDouble(p -> p.get(x, y) ? 1d : 0d).average().orElse(0d) > 0.5d
-    );
+    return BooleanGrid.majority(postures.stream().map(BooleanGrid::from).toList()).toGrid();
   }
 
   public static Footprint computeFootprint(Collection<? extends VoxelPoly> polies, int n) {
-    double robotMinX = polies.stream()
-        .mapToDouble(b -> b.boundingBox().min().x())
-        .min()
-        .orElseThrow(() -> new IllegalArgumentException("Empty robot"));
-    double robotMaxX = polies.stream()
-        .mapToDouble(b -> b.boundingBox().max().x())
-        .max()
-        .orElseThrow(() -> new IllegalArgumentException("Empty robot"));
-    List<DoubleRange> contacts = polies.stream()
-        .filter(VoxelPoly::isTouchingGround)
-        .map(b -> DoubleRange.of(b.boundingBox().min().x(), b.boundingBox().max().x())).toList();
+    double[] minXs = new double[polies.size()];
+    double[] maxXs = new double[polies.size()];
+    boolean[] touchings = new boolean[polies.size()];
+    int i = 0;
+    for (VoxelPoly poly : polies) {
+      BoundingBox boundingBox = poly.boundingBox();
+      minXs[i] = boundingBox.min().x();
+      maxXs[i] = boundingBox.max().x();
+      touchings[i] = poly.isTouchingGround();
+      i = i + 1;
+    }
+    return computeFootprint(minXs, maxXs, touchings, n);
+  }
+
+  public static Footprint computeFootprint(double[] minXs, double[] maxXs, boolean[] touchings, int n) {
+    if (minXs.length == 0) {
+      throw new IllegalArgumentException("Empty robot");
+    }
+    double robotMinX = Double.POSITIVE_INFINITY;
+    double robotMaxX = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < minXs.length; i++) {
+      robotMinX = Math.min(robotMinX, minXs[i]);
+      robotMaxX = Math.max(robotMaxX, maxXs[i]);
+    }
     boolean[] mask = new boolean[n];
-    for (DoubleRange contact : contacts) {
-      int minIndex = (int) Math.round((contact.min() - robotMinX) / (robotMaxX - robotMinX) * (double) (n - 1));
-      int maxIndex = (int) Math.round((contact.max() - robotMinX) / (robotMaxX - robotMinX) * (double) (n - 1));
+    for (int i = 0; i < minXs.length; i++) {
+      if (!touchings[i]) {
+        continue;
+      }
+      int minIndex = (int) Math.round((minXs[i] - robotMinX) / (robotMaxX - robotMinX) * (double) (n - 1));
+      int maxIndex = (int) Math.round((maxXs[i] - robotMinX) / (robotMaxX - robotMinX) * (double) (n - 1));
       for (int x = minIndex; x <= Math.min(maxIndex, n - 1); x++) {
         mask[x] = true;
       }
@@ -161,23 +172,40 @@ public class BehaviorUtils {
   }
 
   public static Grid<Boolean> computePosture(Collection<? extends Shape> shapes, int n) {
-    Collection<BoundingBox> boxes = shapes.stream().map(Shape::boundingBox).toList();
-    double robotMinX = boxes.stream()
-        .mapToDouble(b -> b.min().x())
-        .min()
-        .orElseThrow(() -> new IllegalArgumentException("Empty robot"));
-    double robotMaxX = boxes.stream()
-        .mapToDouble(b -> b.max().x())
-        .max()
-        .orElseThrow(() -> new IllegalArgumentException("Empty robot"));
-    double robotMinY = boxes.stream()
-        .mapToDouble(b -> b.min().y())
-        .min()
-        .orElseThrow(() -> new IllegalArgumentException("Empty robot"));
-    double robotMaxY = boxes.stream()
-        .mapToDouble(b -> b.max().y())
-        .max()
-        .orElseThrow(() -> new IllegalArgumentException("Empty robot"));
+    return computePostureGrid(shapes, n).toGrid();
+  }
+
+  public static BooleanGrid computePostureGrid(Collection<? extends Shape> shapes, int n) {
+    double[] minXs = new double[shapes.size()];
+    double[] minYs = new double[shapes.size()];
+    double[] maxXs = new double[shapes.size()];
+    double[] maxYs = new double[shapes.size()];
+    int i = 0;
+    for (Shape shape : shapes) {
+      BoundingBox boundingBox = shape.boundingBox();
+      minXs[i] = boundingBox.min().x();
+      minYs[i] = boundingBox.min().y();
+      maxXs[i] = boundingBox.max().x();
+      maxYs[i] = boundingBox.max().y();
+      i = i + 1;
+    }
+    return computePosture(minXs, minYs, maxXs, maxYs, n);
+  }
+
+  public static BooleanGrid computePosture(double[] minXs, double[] minYs, double[] maxXs, double[] maxYs, int n) {
+    if (minXs.length == 0) {
+      throw new IllegalArgumentException("Empty robot");
+    }
+    double robotMinX = Double.POSITIVE_INFINITY;
+    double robotMaxX = Double.NEGATIVE_INFINITY;
+    double robotMinY = Double.POSITIVE_INFINITY;
+    double robotMaxY = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < minXs.length; i++) {
+      robotMinX = Math.min(robotMinX, minXs[i]);
+      robotMaxX = Math.max(robotMaxX, maxXs[i]);
+      robotMinY = Math.min(robotMinY, minYs[i]);
+      robotMaxY = Math.max(robotMaxY, maxYs[i]);
+    }
     //adjust box to make it squared
     if ((robotMaxY - robotMinY) < (robotMaxX - robotMinX)) {
       double d = (robotMaxX - robotMinX) - (robotMaxY - robotMinY);
@@ -188,12 +216,12 @@ public class BehaviorUtils {
       robotMaxX = robotMaxX + d / 2;
       robotMinX = robotMinX - d / 2;
     }
-    Grid<Boolean> mask = Grid.create(n, n, false);
-    for (BoundingBox b : boxes) {
-      int minXIndex = (int) Math.round((b.min().x() - robotMinX) / (robotMaxX - robotMinX) * (double) (n - 1));
-      int maxXIndex = (int) Math.round((b.max().x() - robotMinX) / (robotMaxX - robotMinX) * (double) (n - 1));
-      int minYIndex = (int) Math.round((b.min().y() - robotMinY) / (robotMaxY - robotMinY) * (double) (n - 1));
-      int maxYIndex = (int) Math.round((b.max().y() - robotMinY) / (robotMaxY - robotMinY) * (double) (n - 1));
+    BooleanGrid mask = new BooleanGrid(n, n);
+    for (int i = 0; i < minXs.length; i++) {
+      int minXIndex = (int) Math.round((minXs[i] - robotMinX) / (robotMaxX - robotMinX) * (double) (n - 1));
+      int maxXIndex = (int) Math.round((maxXs[i] - robotMinX) / (robotMaxX - robotMinX) * (double) (n - 1));
+      int minYIndex = (int) Math.round((minYs[i] - robotMinY) / (robotMaxY - robotMinY) * (double) (n - 1));
+      int maxYIndex = (int) Math.round((maxYs[i] - robotMinY) / (robotMaxY - robotMinY) * (double) (n - 1));
       for (int x = minXIndex; x <= maxXIndex; x++) {
         for (int y = minYIndex; y <= maxYIndex; y++) {
           mask.set(x, y, true);
@@ -18,22 +18,26 @@
 package it.units.erallab.hmsrobots.core.controllers;
 
 import it.units.erallab.hmsrobots.core.objects.Voxel;
+import it.units.erallab.hmsrobots.util.DoubleGrid;
 import it.units.erallab.hmsrobots.util.Grid;
 
 import java.io.Serializable;
 
 public abstract class AbstractController implements Controller, Serializable {
 
-  public abstract Grid<Double> computeControlSignals(double t, Grid<Voxel> voxels);
+  public abstract DoubleGrid computeControlSignals(double t, Grid<Voxel> voxels);
 
   @Override
   public void control(double t, Grid<Voxel> voxels) {
-    Grid<Double> controlSignals = computeControlSignals(t, voxels);
-    voxels.forEach(e -> {
-      if (e.value() != null) {
-        e.value().applyForce(controlSignals.get(e.key().x(), e.key().y()));
+    DoubleGrid controlSignals = computeControlSignals(t, voxels);
+    for (int x = 0; x < voxels.getW(); x++) {
+      for (int y = 0; y < voxels.getH(); y++) {
+        Voxel voxel = voxels.get(x, y);
+        if (voxel != null) {
+          voxel.applyForce(controlSignals.get(x, y));
+        }
       }
-    });
+    }
   }
 
   public AbstractController smoothed(double controlSignalSpeed) {
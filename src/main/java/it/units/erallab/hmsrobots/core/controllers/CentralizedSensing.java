@@ -25,9 +25,11 @@ import it.units.erallab.hmsrobots.core.snapshots.Snapshot;
 import it.units.erallab.hmsrobots.core.snapshots.Snapshottable;
 import it.units.erallab.hmsrobots.core.snapshots.StackedScopedReadings;
 import it.units.erallab.hmsrobots.util.DoubleRange;
+import it.units.erallab.hmsrobots.util.DoubleGrid;
 import it.units.erallab.hmsrobots.util.Grid;
 import org.apache.commons.lang3.ArrayUtils;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Objects;
 
@@ -47,6 +49,7 @@ public class CentralizedSensing extends AbstractController implements Snapshotta
   private double[] inputs;
   private double[] outputs;
   private DoubleRange[] inputDomains;
+  private transient Grid<Voxel> domainsVoxels;
 
   public CentralizedSensing(
       @JsonProperty("nOfInputs") int nOfInputs,
@@ -83,29 +86,57 @@ public class CentralizedSensing extends AbstractController implements Snapshotta
   }
 
   @Override
-  public Grid<Double> computeControlSignals(double t, Grid<Voxel> voxels) {
-    //collect inputs
-    inputs = voxels.values().stream()
-        .filter(Objects::nonNull)
-        .map(Voxel::getSensorReadings)
-        .reduce(ArrayUtils::addAll)
-        .orElse(new double[nOfInputs]);
-    inputDomains = voxels.values().stream()
-        .filter(Objects::nonNull)
-        .map(Voxel::getSensors)
-        .flatMap(Collection::stream)
-        .map(Sensor::getDomains)
-        .reduce(ArrayUtils::addAll)
-        .orElse(DoubleRange.of(-1d, 1d, nOfInputs));
+  public DoubleGrid computeControlSignals(double t, Grid<Voxel> voxels) {
+    //collect inputs in a buffer which is reused as long as its size is right
+    int n = 0;
+    boolean empty = true;
+    for (int y = 0; y < voxels.getH(); y++) {
+      for (int x = 0; x < voxels.getW(); x++) {
+        Voxel voxel = voxels.get(x, y);
+        if (voxel != null) {
+          empty = false;
+          for (Sensor sensor : voxel.getSensors()) {
+            n = n + sensor.getDomains().length;
+          }
+        }
+      }
+    }
+    if (empty) {
+      n = nOfInputs;
+    }
+    if (inputs == null || inputs.length != n) {
+      inputs = new double[n];
+      inputDomains = null;
+    } else if (empty) {
+      Arrays.fill(inputs, 0d);
+    }
+    int c = 0;
+    for (int y = 0; y < voxels.getH(); y++) {
+      for (int x = 0; x < voxels.getW(); x++) {
+        if (voxels.get(x, y) != null) {
+          c = c + voxels.get(x, y).copySensorReadings(inputs, c);
+        }
+      }
+    }
+    if (inputDomains == null || domainsVoxels != voxels) {
+      inputDomains = voxels.values().stream()
+          .filter(Objects::nonNull)
+          .map(Voxel::getSensors)
+          .flatMap(Collection::stream)
+          .map(Sensor::getDomains)
+          .reduce(ArrayUtils::addAll)
+          .orElse(DoubleRange.of(-1d, 1d, nOfInputs));
+      domainsVoxels = voxels;
+    }
     //compute outputs
     outputs = function != null ? function.apply(t, inputs) : new double[nOfOutputs];
     //apply inputs
-    Grid<Double> controlSignals = Grid.create(voxels.getW(), voxels.getH());
-    int c = 0;
-    for (Grid.Entry<Voxel> entry : voxels) {
-      if (entry.value() != null) {
-        if (c < outputs.length) {
-          controlSignals.set(entry.key().x(), entry.key().y(), outputs[c]);
+    DoubleGrid controlSignals = new DoubleGrid(voxels.getW(), voxels.getH());
+    c = 0;
+    for (int y = 0; y < voxels.getH(); y++) {
+      for (int x = 0; x < voxels.getW(); x++) {
+        if (voxels.get(x, y) != null && c < outputs.length) {
+          controlSignals.set(x, y, outputs[c]);
           c = c + 1;
         }
       }
@@ -132,7 +163,7 @@ public class CentralizedSensing extends AbstractController implements Snapshotta
   public Snapshot getSnapshot() {
     Snapshot snapshot = new Snapshot(
         new StackedScopedReadings(
-            new ScopedReadings(inputs, inputDomains),
+            new ScopedReadings(Arrays.copyOf(inputs, inputs.length), inputDomains),
             new ScopedReadings(outputs, outputDomains)
         ),
         getClass()
@@ -19,14 +19,15 @@ package it.units.erallab.hmsrobots.core.controllers;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import it.units.erallab.hmsrobots.core.objects.Voxel;
+import it.units.erallab.hmsrobots.core.sensors.Sensor;
 import it.units.erallab.hmsrobots.core.snapshots.Snapshot;
 import it.units.erallab.hmsrobots.core.snapshots.Snapshottable;
 import it.units.erallab.hmsrobots.util.DoubleRange;
+import it.units.erallab.hmsrobots.util.DoubleGrid;
 import it.units.erallab.hmsrobots.util.Grid;
-import org.apache.commons.lang3.ArrayUtils;
+import it.units.erallab.hmsrobots.util.IntGrid;
 
 import java.util.Arrays;
-import java.util.Objects;
 
 /**
  * @author eric
@@ -35,15 +36,24 @@ public class DistributedSensing extends AbstractController implements Snapshotta
 
   @JsonProperty
   protected final int signals;
-  protected final Grid<double[]> lastSignalsGrid;
-  @JsonProperty
-  private final Grid<Integer> nOfInputGrid;
-  @JsonProperty
-  private final Grid<Integer> nOfOutputGrid;
+  private final IntGrid nOfInputGrid;
+  private final IntGrid nOfOutputGrid;
   @JsonProperty
   private final Grid<TimedRealFunction> functions;
-  private final Grid<double[]> currentSignalsGrid;
-  private final Grid<Double> controlSignalsGrid;
+  private final DoubleGrid controlSignalsGrid;
+  //signals of all the cells, signals * Dir.values().length for each cell, row by row: swapped at each step
+  private double[] lastSignals;
+  private double[] currentSignals;
+  //for each cell and direction, the position in the signals of the signals coming from that direction, or -1
+  private transient int[] adjacentPositions;
+  private transient double[][] inputs;
+  private transient TimedRealFunction[] checkedFunctions;
+  private transient boolean[] checkedVoxels;
+  private transient long[] checkedParamsVersions;
+  private transient MultiLayerPerceptron sharedFunction;
+  private transient boolean sharedInstance;
+  private transient double[][] sharedInputs;
+  private transient double[][] sharedOutputs;
 
   @JsonCreator
   public DistributedSensing(
@@ -53,12 +63,12 @@ public class DistributedSensing extends AbstractController implements Snapshotta
       @JsonProperty("functions") Grid<TimedRealFunction> functions
   ) {
     this.signals = signals;
-    this.nOfInputGrid = nOfInputGrid;
-    this.nOfOutputGrid = nOfOutputGrid;
+    this.nOfInputGrid = IntGrid.from(nOfInputGrid);
+    this.nOfOutputGrid = IntGrid.from(nOfOutputGrid);
     this.functions = functions;
-    lastSignalsGrid = Grid.create(functions, f -> new double[signals * Dir.values().length]);
-    currentSignalsGrid = Grid.create(functions, f -> new double[signals * Dir.values().length]);
-    controlSignalsGrid = Grid.create(functions, f -> 0d);
+    lastSignals = new double[functions.getW() * functions.getH() * signals * Dir.values().length];
+    currentSignals = new double[lastSignals.length];
+    controlSignalsGrid = new DoubleGrid(functions.getW(), functions.getH());
     reset();
   }
 
@@ -148,64 +158,215 @@ public class DistributedSensing extends AbstractController implements Snapshotta
   }
 
   @Override
-  public Grid<Double> computeControlSignals(double t, Grid<Voxel> voxels) {
-    for (Grid.Entry<Voxel> entry : voxels) {
-      if (entry.value() == null) {
-        continue;
-      }
-      //get inputs
-      double[] signals = getLastSignals(entry.key().x(), entry.key().y());
-      double[] inputs = ArrayUtils.addAll(entry.value().getSensorReadings(), signals);
-      //compute outputs
-      TimedRealFunction function = functions.get(entry.key().x(), entry.key().y());
-      double[] outputs = function != null ? function.apply(t, inputs) : new double[nOfOutputs(
-          entry.key().x(),
-          entry.key().y()
-      )];
-      //save outputs
-      controlSignalsGrid.set(entry.key().x(), entry.key().y(), outputs[0]);
-      System.arraycopy(outputs, 1, currentSignalsGrid.get(entry.key().x(), entry.key().y()), 0, outputs.length - 1);
+  public DoubleGrid computeControlSignals(double t, Grid<Voxel> voxels) {
+    if (adjacentPositions == null) {
+      adjacentPositions = buildAdjacentPositions();
+      inputs = new double[functions.getW() * functions.getH()][];
     }
-    for (Grid.Entry<Voxel> entry : voxels) {
-      if (entry.value() == null) {
-        continue;
+    if (isShared(voxels)) {
+      computeSharedControlSignals(voxels);
+    } else {
+      int nOfSignals = signals * Dir.values().length;
+      for (int y = 0; y < voxels.getH(); y++) {
+        for (int x = 0; x < voxels.getW(); x++) {
+          Voxel voxel = voxels.get(x, y);
+          if (voxel == null) {
+            continue;
+          }
+          //get inputs
+          int cell = y * functions.getW() + x;
+          int nOfInputs = nOfReadings(voxel) + nOfSignals;
+          if (inputs[cell] == null || inputs[cell].length != nOfInputs) {
+            inputs[cell] = new double[nOfInputs];
+          }
+          fillInputs(cell, voxel, inputs[cell]);
+          //compute outputs
+          TimedRealFunction function = functions.get(x, y);
+          double[] outputs = function != null ? function.apply(t, inputs[cell]) : new double[nOfOutputs(x, y)];
+          //save outputs
+          controlSignalsGrid.set(x, y, outputs[0]);
+          System.arraycopy(outputs, 1, currentSignals, cell * nOfSignals, outputs.length - 1);
+        }
       }
-      int x = entry.key().x();
-      int y = entry.key().y();
-      System.arraycopy(
-          currentSignalsGrid.get(x, y),
-          0,
-          lastSignalsGrid.get(x, y),
-          0,
-          currentSignalsGrid.get(x, y).length
-      );
     }
-    return Grid.copy(controlSignalsGrid);
+    swapSignals(voxels);
+    return controlSignalsGrid.copy();
   }
 
-  public Grid<TimedRealFunction> getFunctions() {
-    return functions;
+  private void computeSharedControlSignals(Grid<Voxel> voxels) {
+    int nOfSignals = signals * Dir.values().length;
+    //gather inputs
+    int c = 0;
+    for (int y = 0; y < voxels.getH(); y++) {
+      for (int x = 0; x < voxels.getW(); x++) {
+        Voxel voxel = voxels.get(x, y);
+        if (voxel == null) {
+          continue;
+        }
+        int nOfInputs = nOfReadings(voxel) + nOfSignals;
+        if (nOfInputs != sharedInputs[c].length) {
+          throw new IllegalArgumentException(String.format(
+              "Expected input length is %d: found %d",
+              sharedInputs[c].length,
+              nOfInputs
+          ));
+        }
+        fillInputs(y * functions.getW() + x, voxel, sharedInputs[c]);
+        c = c + 1;
+      }
+    }
+    //compute outputs
+    sharedFunction.apply(sharedInputs, sharedOutputs);
+    //save outputs
+    c = 0;
+    for (int y = 0; y < voxels.getH(); y++) {
+      for (int x = 0; x < voxels.getW(); x++) {
+        if (voxels.get(x, y) == null) {
+          continue;
+        }
+        //the layer values of equal instances are set as if each instance had been applied to its inputs
+        if (!sharedInstance) {
+          sharedFunction.copyBatchActivationValues(c, ((MultiLayerPerceptron) functions.get(x, y)).activationValues);
+        }
+        double[] outputs = sharedOutputs[c];
+        controlSignalsGrid.set(x, y, outputs[0]);
+        System.arraycopy(
+            outputs,
+            1,
+            currentSignals,
+            (y * functions.getW() + x) * nOfSignals,
+            outputs.length - 1
+        );
+        c = c + 1;
+      }
+    }
   }
 
+  /**
+   * Returns the signals that the voxel in the provided position received from the adjacent voxels at the last step, as
+   * they are given in input to its function.
+   *
+   * @deprecated the signals are no more kept in a grid and this method is not used to build the inputs of the functions,
+   * hence overriding it has no effect: override {@link #adjacentSignalsIndex(Dir)} to change which signals are received
+   */
+  @Deprecated
   protected double[] getLastSignals(int x, int y) {
     double[] values = new double[signals * Dir.values().length];
-    if (signals <= 0) {
-      return values;
+    if (adjacentPositions == null) {
+      adjacentPositions = buildAdjacentPositions();
     }
-    int c = 0;
-    for (Dir dir : Dir.values()) {
-      int adjacentX = x + dir.dx;
-      int adjacentY = y + dir.dy;
-      double[] lastSignals = lastSignalsGrid.get(adjacentX, adjacentY);
-      if (lastSignals != null) {
-        int index = Dir.adjacent(dir).index;
-        System.arraycopy(lastSignals, index * signals, values, c, signals);
+    int cell = y * functions.getW() + x;
+    for (int d = 0; d < Dir.values().length; d++) {
+      int position = adjacentPositions[cell * Dir.values().length + d];
+      if (position >= 0) {
+        System.arraycopy(lastSignals, position, values, d * signals, signals);
       }
-      c = c + signals;
     }
     return values;
   }
 
+  /**
+   * Returns a grid with a copy of the signals that each voxel emitted at the last step, built on each invocation.
+   *
+   * @deprecated the signals are no more kept in a grid: changing the returned arrays has no effect on the controller
+   */
+  @Deprecated
+  protected Grid<double[]> getLastSignalsGrid() {
+    int nOfSignals = signals * Dir.values().length;
+    return Grid.create(
+        functions.getW(),
+        functions.getH(),
+        (x, y) -> Arrays.copyOfRange(
+            lastSignals,
+            (y * functions.getW() + x) * nOfSignals,
+            (y * functions.getW() + x + 1) * nOfSignals
+        )
+    );
+  }
+
+  /**
+   * Returns the index, among the {@link Dir#values()}, of the block of signals of an adjacent voxel which is received
+   * by a voxel from the provided direction.
+   */
+  protected int adjacentSignalsIndex(Dir dir) {
+    return Dir.adjacent(dir).index;
+  }
+
+  private int[] buildAdjacentPositions() {
+    int w = functions.getW();
+    int h = functions.getH();
+    int nOfSignals = signals * Dir.values().length;
+    int[] positions = new int[w * h * Dir.values().length];
+    for (int y = 0; y < h; y++) {
+      for (int x = 0; x < w; x++) {
+        for (Dir dir : Dir.values()) {
+          int adjacentX = x + dir.dx;
+          int adjacentY = y + dir.dy;
+          int i = (y * w + x) * Dir.values().length + dir.index;
+          if (adjacentX < 0 || adjacentX >= w || adjacentY < 0 || adjacentY >= h) {
+            positions[i] = -1;
+          } else {
+            positions[i] = (adjacentY * w + adjacentX) * nOfSignals + adjacentSignalsIndex(dir) * signals;
+          }
+        }
+      }
+    }
+    return positions;
+  }
+
+  //writes the readings of the voxel followed by the signals it receives from the adjacent voxels
+  private void fillInputs(int cell, Voxel voxel, double[] inputs) {
+    int c = voxel.copySensorReadings(inputs, 0);
+    for (int d = 0; d < Dir.values().length; d++) {
+      int position = adjacentPositions[cell * Dir.values().length + d];
+      if (position >= 0) {
+        System.arraycopy(lastSignals, position, inputs, c, signals);
+      } else {
+        Arrays.fill(inputs, c, c + signals, 0d);
+      }
+      c = c + signals;
+    }
+  }
+
+  private static int nOfReadings(Voxel voxel) {
+    int n = 0;
+    for (Sensor sensor : voxel.getSensors()) {
+      n = n + sensor.getReadings().length;
+    }
+    return n;
+  }
+
+  //makes the current signals the last ones; cells without a voxel keep their last signals
+  private void swapSignals(Grid<Voxel> voxels) {
+    double[] signalsToSwap = lastSignals;
+    lastSignals = currentSignals;
+    currentSignals = signalsToSwap;
+    int nOfSignals = signals * Dir.values().length;
+    for (int y = 0; y < functions.getH(); y++) {
+      for (int x = 0; x < functions.getW(); x++) {
+        if (voxels.get(x, y) == null) {
+          int position = (y * functions.getW() + x) * nOfSignals;
+          System.arraycopy(currentSignals, position, lastSignals, position, nOfSignals);
+        }
+      }
+    }
+  }
+
+  public Grid<TimedRealFunction> getFunctions() {
+    return functions;
+  }
+
+  //serialized as grids of boxed values, for compatibility with previously serialized controllers
+  @JsonProperty("nOfInputGrid")
+  private Grid<Integer> getNOfInputGrid() {
+    return nOfInputGrid.toGrid();
+  }
+
+  @JsonProperty("nOfOutputGrid")
+  private Grid<Integer> getNOfOutputGrid() {
+    return nOfOutputGrid.toGrid();
+  }
+
   public int nOfInputs(int x, int y) {
     return nOfInputGrid.get(x, y);
   }
@@ -218,9 +379,9 @@ public class DistributedSensing extends AbstractController implements Snapshotta
   public Snapshot getSnapshot() {
     return new Snapshot(
         new DistributedSensingState(
-            Grid.create(nOfInputGrid, i -> i > 0),
-            Grid.copy(controlSignalsGrid),
-            Grid.create(lastSignalsGrid, a -> Arrays.copyOf(a, a.length)),
+            Grid.create(functions.getW(), functions.getH(), (x, y) -> nOfInputGrid.get(x, y) > 0),
+            controlSignalsGrid.toGrid(),
+            getLastSignalsGrid(),
             DoubleRange.of(-1d, 1d)
         ),
         getClass()
@@ -229,21 +390,80 @@ public class DistributedSensing extends AbstractController implements Snapshotta
 
   @Override
   public void reset() {
-    for (int x = 0; x < lastSignalsGrid.getW(); x++) {
-      for (int y = 0; y < lastSignalsGrid.getH(); y++) {
-        lastSignalsGrid.set(x, y, new double[signals * Dir.values().length]);
+    Arrays.fill(lastSignals, 0d);
+    Arrays.fill(currentSignals, 0d);
+    checkedFunctions = null;
+    functions.forEachNonNull((x, y, f) -> {
+      if (f instanceof Resettable) {
+        ((Resettable) f).reset();
       }
+    });
+  }
+
+  /**
+   * Tells if all the voxels are controlled by the same {@link MultiLayerPerceptron}, i.e., by one single instance or by
+   * instances with the same weights, so that they can be evaluated together as a batch. The check is done again only
+   * if the functions or the voxels change, if the params of one of the functions are set, or after a {@link #reset()}.
+   */
+  private boolean isShared(Grid<Voxel> voxels) {
+    if (voxels.getW() != functions.getW() || voxels.getH() != functions.getH()) {
+      checkedFunctions = null;
+      sharedFunction = null;
+      return false;
     }
-    for (int x = 0; x < currentSignalsGrid.getW(); x++) {
-      for (int y = 0; y < currentSignalsGrid.getH(); y++) {
-        currentSignalsGrid.set(x, y, new double[signals * Dir.values().length]);
+    int n = functions.getW() * functions.getH();
+    if (checkedFunctions != null) {
+      boolean unchanged = true;
+      for (int i = 0; i < n && unchanged; i++) {
+        int x = i % functions.getW();
+        int y = i / functions.getW();
+        TimedRealFunction function = functions.get(x, y);
+        unchanged = checkedFunctions[i] == function && checkedVoxels[i] == (voxels.get(x, y) != null) && (
+            !(function instanceof MultiLayerPerceptron mlp) || checkedParamsVersions[i] == mlp.getParamsVersion());
+      }
+      if (unchanged) {
+        return sharedFunction != null;
       }
     }
-    functions.values().stream().filter(Objects::nonNull).forEach(f -> {
-      if (f instanceof Resettable) {
-        ((Resettable) f).reset();
+    checkedFunctions = new TimedRealFunction[n];
+    checkedVoxels = new boolean[n];
+    checkedParamsVersions = new long[n];
+    sharedFunction = null;
+    sharedInstance = true;
+    int nOfVoxels = 0;
+    MultiLayerPerceptron candidate = null;
+    boolean shared = true;
+    for (int i = 0; i < n; i++) {
+      int x = i % functions.getW();
+      int y = i / functions.getW();
+      TimedRealFunction function = functions.get(x, y);
+      checkedFunctions[i] = function;
+      checkedVoxels[i] = voxels.get(x, y) != null;
+      if (function instanceof MultiLayerPerceptron mlp) {
+        checkedParamsVersions[i] = mlp.getParamsVersion();
       }
-    });
+      if (!checkedVoxels[i]) {
+        continue;
+      }
+      nOfVoxels = nOfVoxels + 1;
+      //stateful subclasses, e.g., the pruning one, cannot be shared
+      if (function == null || function.getClass() != MultiLayerPerceptron.class) {
+        shared = false;
+      } else if (candidate == null) {
+        candidate = (MultiLayerPerceptron) function;
+      } else if (candidate != function) {
+        sharedInstance = false;
+        if (!candidate.equals(function)) {
+          shared = false;
+        }
+      }
+    }
+    if (shared && candidate != null) {
+      sharedFunction = candidate;
+      sharedInputs = new double[nOfVoxels][candidate.getInputDimension()];
+      sharedOutputs = new double[nOfVoxels][candidate.getOutputDimension()];
+    }
+    return sharedFunction != null;
   }
 
   @Override
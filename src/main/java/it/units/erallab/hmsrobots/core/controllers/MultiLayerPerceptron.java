@@ -27,6 +27,7 @@ import it.units.erallab.hmsrobots.util.Parametrized;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Objects;
+import java.util.function.DoubleUnaryOperator;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -42,6 +43,9 @@ public class MultiLayerPerceptron implements Serializable, RealFunction, Paramet
   @JsonProperty
   protected final int[] neurons;
   protected final double[][] activationValues;
+  private final double[] flatWeights;
+  private transient double[][] batchActivationValues;
+  private transient long paramsVersion;
 
   @JsonCreator
   public MultiLayerPerceptron(
@@ -50,9 +54,11 @@ public class MultiLayerPerceptron implements Serializable, RealFunction, Paramet
       @JsonProperty("neurons") int[] neurons
   ) {
     this.activationFunction = activationFunction;
-    this.weights = weights;
     this.neurons = neurons;
     activationValues = new double[neurons.length][];
+    for (int i = 0; i < neurons.length; i++) {
+      activationValues[i] = new double[neurons[i]];
+    }
     if (flat(weights, neurons).length != countWeights(neurons)) {
       throw new IllegalArgumentException(String.format(
           "Wrong number of weights: %d expected, %d found",
@@ -60,6 +66,9 @@ public class MultiLayerPerceptron implements Serializable, RealFunction, Paramet
           flat(weights, neurons).length
       ));
     }
+    flatWeights = flat(weights, neurons);
+    //copied, such that they cannot be modified from outside without updating the flat ones
+    this.weights = unflat(flatWeights, neurons);
   }
 
   public MultiLayerPerceptron(
@@ -86,7 +95,7 @@ public class MultiLayerPerceptron implements Serializable, RealFunction, Paramet
     );
   }
 
-  public enum ActivationFunction implements Function<Double, Double> {
+  public enum ActivationFunction implements Function<Double, Double>, DoubleUnaryOperator {
     RELU(x -> (x < 0) ? 0d : x, DoubleRange.of(0d, Double.POSITIVE_INFINITY)),
     SIGMOID(x -> 1d / (1d + Math.exp(-x)), DoubleRange.of(0d, 1d)),
     SIN(Math::sin, DoubleRange.of(-1d, 1d)),
@@ -94,16 +103,21 @@ public class MultiLayerPerceptron implements Serializable, RealFunction, Paramet
     SIGN(Math::signum, DoubleRange.of(-1d, 1d)),
     IDENTITY(x -> x, DoubleRange.of(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY));
 
-    private final Function<Double, Double> f;
+    private final DoubleUnaryOperator f;
     private final DoubleRange domain;
 
-    ActivationFunction(Function<Double, Double> f, DoubleRange domain) {
+    ActivationFunction(DoubleUnaryOperator f, DoubleRange domain) {
       this.f = f;
       this.domain = domain;
     }
 
     public Double apply(Double x) {
-      return f.apply(x);
+      return f.applyAsDouble(x);
+    }
+
+    @Override
+    public double applyAsDouble(double x) {
+      return f.applyAsDouble(x);
     }
 
     public DoubleRange getDomain() {
@@ -111,7 +125,7 @@ public class MultiLayerPerceptron implements Serializable, RealFunction, Paramet
     }
 
     public Function<Double, Double> getF() {
-      return f;
+      return this;
     }
   }
 
@@ -167,6 +181,15 @@ public class MultiLayerPerceptron implements Serializable, RealFunction, Paramet
 
   @Override
   public double[] apply(double[] input) {
+    return apply(input, new double[neurons[neurons.length - 1]]);
+  }
+
+  /**
+   * Computes the output for the given input and writes it in {@code output}, which is also returned. Apart from the
+   * output, no arrays are allocated: the values of the layers are kept in the preallocated
+   * {@link #getActivationValues()} buffers.
+   */
+  public double[] apply(double[] input, double[] output) {
     if (input.length != neurons[0]) {
       throw new IllegalArgumentException(String.format(
           "Expected input length is %d: found %d",
@@ -174,18 +197,110 @@ public class MultiLayerPerceptron implements Serializable, RealFunction, Paramet
           input.length
       ));
     }
-    activationValues[0] = Arrays.stream(input).map(activationFunction.f::apply).toArray();
+    if (output.length != neurons[neurons.length - 1]) {
+      throw new IllegalArgumentException(String.format(
+          "Expected output length is %d: found %d",
+          neurons[neurons.length - 1],
+          output.length
+      ));
+    }
+    double[] inputValues = activationValues[0];
+    for (int k = 0; k < inputValues.length; k++) {
+      inputValues[k] = activationFunction.applyAsDouble(input[k]);
+    }
+    int c = 0;
     for (int i = 1; i < neurons.length; i++) {
-      activationValues[i] = new double[neurons[i]];
+      double[] previousValues = activationValues[i - 1];
+      double[] values = activationValues[i];
+      for (int j = 0; j < values.length; j++) {
+        double sum = flatWeights[c]; //set the bias
+        for (int k = 0; k < previousValues.length; k++) {
+          sum = sum + previousValues[k] * flatWeights[c + k + 1];
+        }
+        c = c + previousValues.length + 1;
+        values[j] = activationFunction.applyAsDouble(sum);
+      }
+    }
+    System.arraycopy(activationValues[neurons.length - 1], 0, output, 0, output.length);
+    return output;
+  }
+
+  /**
+   * Computes the outputs for many inputs at once, as many invocations of {@link #apply(double[], double[])} would do,
+   * but with one matrix-matrix product per layer, so that each row of weights is reused across all the inputs. The
+   * results are the same of the one-input-at-a-time computation; at the end, {@link #getActivationValues()} are the
+   * ones of the last input.
+   */
+  public double[][] apply(double[][] inputs, double[][] outputs) {
+    if (inputs.length != outputs.length) {
+      throw new IllegalArgumentException(String.format(
+          "Inputs and outputs must be the same number: %d and %d found",
+          inputs.length,
+          outputs.length
+      ));
+    }
+    int nOfInputs = inputs.length;
+    if (nOfInputs == 0) {
+      return outputs;
+    }
+    if (batchActivationValues == null || batchActivationValues[0].length < nOfInputs * neurons[0]) {
+      batchActivationValues = new double[neurons.length][];
+      for (int i = 0; i < neurons.length; i++) {
+        batchActivationValues[i] = new double[nOfInputs * neurons[i]];
+      }
+    }
+    double[] inputValues = batchActivationValues[0];
+    for (int s = 0; s < nOfInputs; s++) {
+      if (inputs[s].length != neurons[0]) {
+        throw new IllegalArgumentException(String.format(
+            "Expected input length is %d: found %d",
+            neurons[0],
+            inputs[s].length
+        ));
+      }
+      if (outputs[s].length != neurons[neurons.length - 1]) {
+        throw new IllegalArgumentException(String.format(
+            "Expected output length is %d: found %d",
+            neurons[neurons.length - 1],
+            outputs[s].length
+        ));
+      }
+      for (int k = 0; k < neurons[0]; k++) {
+        inputValues[s * neurons[0] + k] = activationFunction.applyAsDouble(inputs[s][k]);
+      }
+    }
+    int c = 0;
+    for (int i = 1; i < neurons.length; i++) {
+      double[] previousValues = batchActivationValues[i - 1];
+      double[] values = batchActivationValues[i];
+      int nOfPrevious = neurons[i - 1];
       for (int j = 0; j < neurons[i]; j++) {
-        double sum = weights[i - 1][j][0]; //set the bias
-        for (int k = 1; k < neurons[i - 1] + 1; k++) {
-          sum = sum + activationValues[i - 1][k - 1] * weights[i - 1][j][k];
+        for (int s = 0; s < nOfInputs; s++) {
+          double sum = flatWeights[c]; //set the bias
+          int offset = s * nOfPrevious;
+          for (int k = 0; k < nOfPrevious; k++) {
+            sum = sum + previousValues[offset + k] * flatWeights[c + k + 1];
+          }
+          values[s * neurons[i] + j] = activationFunction.applyAsDouble(sum);
         }
-        activationValues[i][j] = activationFunction.apply(sum);
+        c = c + nOfPrevious + 1;
       }
     }
-    return activationValues[neurons.length - 1];
+    double[] outputValues = batchActivationValues[neurons.length - 1];
+    for (int s = 0; s < nOfInputs; s++) {
+      System.arraycopy(outputValues, s * outputs[s].length, outputs[s], 0, outputs[s].length);
+    }
+    for (int i = 0; i < neurons.length; i++) {
+      System.arraycopy(batchActivationValues[i], (nOfInputs - 1) * neurons[i], activationValues[i], 0, neurons[i]);
+    }
+    return outputs;
+  }
+
+  //copies the values of the layers for the s-th input of the last batch in the provided buffers
+  void copyBatchActivationValues(int s, double[][] values) {
+    for (int i = 0; i < neurons.length; i++) {
+      System.arraycopy(batchActivationValues[i], s * neurons[i], values[i], 0, neurons[i]);
+    }
   }
 
   public double[][] getActivationValues() {
@@ -206,6 +321,11 @@ public class MultiLayerPerceptron implements Serializable, RealFunction, Paramet
     return neurons;
   }
 
+  //changes whenever the params are set
+  long getParamsVersion() {
+    return paramsVersion;
+  }
+
   @Override
   public double[] getParams() {
     return MultiLayerPerceptron.flat(weights, neurons);
@@ -219,18 +339,23 @@ public class MultiLayerPerceptron implements Serializable, RealFunction, Paramet
         System.arraycopy(newWeights[l][s], 0, weights[l][s], 0, newWeights[l][s].length);
       }
     }
+    System.arraycopy(params, 0, flatWeights, 0, flatWeights.length);
+    paramsVersion = paramsVersion + 1;
   }
 
   @Override
   public Snapshot getSnapshot() {
     return new Snapshot(
-        new MLPState(getActivationValues(), getWeights(), activationFunction.getDomain()),
+        new MLPState(getActivationValues(), weights, activationFunction.getDomain()),
         getClass()
     );
   }
 
+  /**
+   * Returns a copy of the weights: use {@link #setParams(double[])} to modify them.
+   */
   public double[][][] getWeights() {
-    return weights;
+    return unflat(flatWeights, neurons);
   }
 
   @Override
@@ -18,6 +18,7 @@
 package it.units.erallab.hmsrobots.core.controllers;
 
 import it.units.erallab.hmsrobots.core.objects.Voxel;
+import it.units.erallab.hmsrobots.util.DoubleGrid;
 import it.units.erallab.hmsrobots.util.Grid;
 
 import java.util.List;
@@ -37,9 +38,9 @@ public class PosesController extends AbstractController {
   }
 
   @Override
-  public Grid<Double> computeControlSignals(double t, Grid<Voxel> voxels) {
+  public DoubleGrid computeControlSignals(double t, Grid<Voxel> voxels) {
     int poseIndex = (int) Math.round(t / stepT) % poses.size();
-    Grid<Double> values = Grid.create(voxels, v -> -1d);
+    DoubleGrid values = DoubleGrid.create(voxels.getW(), voxels.getH(), -1d);
     for (Grid.Key key : poses.get(poseIndex)) {
       if (key.x() >= 0 && key.x() < values.getW() && key.y() >= 0 && key.y() < values.getH()) {
         values.set(key.x(), key.y(), 1d);
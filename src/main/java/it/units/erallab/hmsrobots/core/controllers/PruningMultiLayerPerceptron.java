@@ -111,6 +111,14 @@ public class PruningMultiLayerPerceptron extends MultiLayerPerceptron implements
     if (t >= pruningTime) {
       prune();
     }
+    return apply(input);
+  }
+
+  /**
+   * Computes the output with the pruned weights, as {@link #apply(double, double[])} does, but without pruning.
+   */
+  @Override
+  public double[] apply(double[] input, double[] output) {
     if (input.length != neurons[0]) {
       throw new IllegalArgumentException(String.format(
           "Expected input length is %d: found %d",
@@ -118,9 +126,17 @@ public class PruningMultiLayerPerceptron extends MultiLayerPerceptron implements
           input.length
       ));
     }
-    activationValues[0] = Arrays.stream(input).map(activationFunction::apply).toArray();
+    if (output.length != neurons[neurons.length - 1]) {
+      throw new IllegalArgumentException(String.format(
+          "Expected output length is %d: found %d",
+          neurons[neurons.length - 1],
+          output.length
+      ));
+    }
+    for (int k = 0; k < neurons[0]; k++) {
+      activationValues[0][k] = activationFunction.applyAsDouble(input[k]);
+    }
     for (int i = 1; i < neurons.length; i++) {
-      activationValues[i] = new double[neurons[i]];
       for (int j = 0; j < neurons[i]; j++) {
         double sum = prunedWeights[i - 1][j][0]; //set the bias
         for (int k = 1; k < neurons[i - 1] + 1; k++) {
@@ -131,11 +147,31 @@ public class PruningMultiLayerPerceptron extends MultiLayerPerceptron implements
           absMeans[i - 1][j][k] = absMeans[i - 1][j][k] + (Math.abs(signal) - absMeans[i - 1][j][k]) / ((double) counter + 1d);
           meanDiffSquareSums[i - 1][j][k] = meanDiffSquareSums[i - 1][j][k] + delta * (signal - means[i - 1][j][k]);
         }
-        activationValues[i][j] = activationFunction.apply(sum);
+        activationValues[i][j] = activationFunction.applyAsDouble(sum);
       }
     }
     counter = counter + 1;
-    return activationValues[neurons.length - 1];
+    System.arraycopy(activationValues[neurons.length - 1], 0, output, 0, output.length);
+    return output;
+  }
+
+  /**
+   * Computes the outputs one input at a time, since the statistics of the signals, upon which pruning is based, are
+   * updated after each input.
+   */
+  @Override
+  public double[][] apply(double[][] inputs, double[][] outputs) {
+    if (inputs.length != outputs.length) {
+      throw new IllegalArgumentException(String.format(
+          "Inputs and outputs must be the same number: %d and %d found",
+          inputs.length,
+          outputs.length
+      ));
+    }
+    for (int s = 0; s < inputs.length; s++) {
+      apply(inputs[s], outputs[s]);
+    }
+    return outputs;
   }
 
   private void prune(List<PruningPair> localPairs) {
@@ -6,8 +6,8 @@ import it.units.erallab.hmsrobots.core.snapshots.MLPState;
 import it.units.erallab.hmsrobots.core.snapshots.Snapshot;
 import it.units.erallab.hmsrobots.core.snapshots.Snapshottable;
 import it.units.erallab.hmsrobots.util.DoubleRange;
+import it.units.erallab.hmsrobots.util.MatrixUtils;
 import it.units.erallab.hmsrobots.util.Parametrized;
-import org.apache.commons.lang3.ArrayUtils;
 
 import java.io.Serializable;
 import java.util.Arrays;
@@ -36,6 +36,8 @@ public class SelfAttention implements Serializable, Parametrized, RealFunction,
   private final double[][] latentCode;
   private final double[][] q;
   private final double[][] k;
+  private final double[][] reshaped;
+  private final double[] flatLatentCode;
 
   @JsonCreator
   public SelfAttention(@JsonProperty("dowstream") MultiLayerPerceptron downstream,
@@ -58,6 +60,8 @@ public class SelfAttention implements Serializable, Parametrized, RealFunction,
     this.latentCode = new double[din][n];
     this.q = new double[din][dk];
     this.k = new double[din][dk];
+    this.reshaped = new double[n][din];
+    this.flatLatentCode = new double[din * n];
   }
 
   public SelfAttention(MultiLayerPerceptron downstream, int n, int din, int dk) {
@@ -96,33 +100,54 @@ public class SelfAttention implements Serializable, Parametrized, RealFunction,
 
   @Override
   public void setParams(double[] params) {
-    this.setAttentionParams(Arrays.stream(params).limit(countAttentionParams(this.din, this.dk)).toArray());
-    this.setDownstreamParams(Arrays.stream(params).skip(countAttentionParams(this.din, this.dk)).toArray());
+    this.setAttentionParams(params);
+    this.setDownstreamParams(Arrays.copyOfRange(params, countAttentionParams(this.din, this.dk), params.length));
   }
 
   public static double[] concat(double[]... arrays) {
-    double[] values = new double[]{};
+    int length = 0;
     for (double[] a : arrays) {
-      values = ArrayUtils.addAll(values, a);
+      length = length + a.length;
+    }
+    double[] values = new double[length];
+    int c = 0;
+    for (double[] a : arrays) {
+      System.arraycopy(a, 0, values, c, a.length);
+      c = c + a.length;
     }
     return values;
   }
 
   @Override
   public double[] apply(double[] inputs) {
-    return this.downstream.apply(flat(this.applyAttention(inputs)));
+    return this.apply(inputs, new double[this.downstream.getOutputDimension()]);
+  }
+
+  /**
+   * Computes the output for the given input and writes it in {@code output}, which is also returned. No arrays are
+   * allocated: the intermediate values are kept in preallocated buffers.
+   */
+  public double[] apply(double[] inputs, double[] output) {
+    MatrixUtils.flat(this.applyAttention(inputs), this.flatLatentCode);
+    return this.downstream.apply(this.flatLatentCode, output);
   }
 
   public double[][] applyAttention(double[] inputs) {
-    double[][] reshaped = reshapeVector(inputs, this.n, this.din);
-    linearTransform(reshaped, this.wq, this.qbias, this.q);
-    double[][] keys = matrixTranspose(linearTransform(reshaped, this.wk, this.kbias, this.k));
-    matrixMult(this.q, keys, this.attention);
-    matrixDiv(this.attention, Math.sqrt(this.dk));
-    for (double[] row : this.attention) {
-      tanh(row);
+    if (inputs.length != this.n * this.din) {
+      throw new RuntimeException(String.format(
+          "Cannot reshape vector of size %d into (%d,%d)",
+          inputs.length,
+          this.n,
+          this.din
+      ));
     }
-    matrixMult(this.attention, matrixTranspose(reshaped), this.latentCode);
+    MatrixUtils.reshape(inputs, this.reshaped);
+    linearTransform(this.reshaped, this.wq, this.qbias, this.q);
+    linearTransform(this.reshaped, this.wk, this.kbias, this.k);
+    MatrixUtils.multiplyTransposed(this.q, this.k, this.attention);
+    MatrixUtils.divide(this.attention, Math.sqrt(this.dk));
+    MatrixUtils.tanh(this.attention);
+    MatrixUtils.multiplyTransposed(this.attention, this.reshaped, this.latentCode);
     return this.latentCode;
   }
 
@@ -160,24 +185,12 @@ public class SelfAttention implements Serializable, Parametrized, RealFunction,
   }
 
   public static void matrixMult(double[][] a, double[][] b, double[][] c) {
-    for (int i = 0; i < a.length; ++i) {
-      for (int j = 0; j < b[0].length; ++j) {
-        double sum = 0.0;
-        for (int k = 0; k < b.length; ++k) {
-          sum += a[i][k] * b[k][j];
-        }
-        c[i][j] = sum;
-      }
-    }
+    MatrixUtils.multiply(a, b, c);
   }
 
   public static double[][] linearTransform(double[][] x, double[][] a, double[] b, double[][] y) {
-    matrixMult(x, a, y);
-    for (int i = 0; i < y.length; ++i) {
-      for (int j = 0; j < y[i].length; ++j) {
-        y[i][j] += b[j];
-      }
-    }
+    MatrixUtils.multiply(x, a, y);
+    MatrixUtils.addToRows(y, b);
     return y;
   }
 
@@ -198,9 +211,7 @@ public class SelfAttention implements Serializable, Parametrized, RealFunction,
   }
 
   public static void matrixDiv(double[][] m, double value) {
-    for (double[] row : m) {
-      vectorDiv(row, value);
-    }
+    MatrixUtils.divide(m, value);
   }
 
   public static void vectorDiv(double[] v, double value) {
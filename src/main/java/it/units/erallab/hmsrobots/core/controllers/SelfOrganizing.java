@@ -18,10 +18,12 @@ package it.units.erallab.hmsrobots.core.controllers;
 
 import com.fasterxml.jackson.annotation.*;
 import it.units.erallab.hmsrobots.core.objects.Voxel;
+import it.units.erallab.hmsrobots.core.sensors.Sensor;
 import it.units.erallab.hmsrobots.util.Grid;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
@@ -31,6 +33,7 @@ public class SelfOrganizing implements Controller {
 
   @JsonProperty
   private final Map<Integer, Neuron> neurons;
+  private transient Plan plan;
 
   @JsonCreator
   public SelfOrganizing(@JsonProperty("neurons") Map<Integer, Neuron> neurons) {
@@ -44,6 +47,128 @@ public class SelfOrganizing implements Controller {
     this(other.getNeuronsMap());
   }
 
+  /**
+   * The neurons and the edges compiled in flat arrays: the ingoing edges of the neuron at position {@code i} are the
+   * ones from {@code edgeStarts[i]} (inclusive) to {@code edgeStarts[i+1]} (exclusive), each one with the position of
+   * its source, its weight, and its bias. Neurons of a class the plan does not know, e.g., of a subclass, are evaluated
+   * by their {@link Neuron#forward(Grid, SelfOrganizing)}. Since each neuron reads the messages sent by the other
+   * neurons at the previous step, neurons can be evaluated in any order: they are kept in the order of the neurons
+   * map, which also determines which actuator neuron prevails when many of them act on the same voxel. The ingoing
+   * values of a neuron are summed in order, hence the message may differ in the last digits from the one computed by
+   * {@link Neuron#forward(Grid, SelfOrganizing)}, which uses a compensated summation.
+   */
+  private static final class Plan {
+    private enum Kind {SENSING, HIDDEN, ACTUATOR, OTHER}
+
+    private final Neuron[] neurons;
+    private final Kind[] kinds;
+    private final int[] edgeStarts;
+    private final int[] sources;
+    private final double[] weights;
+    private final double[] biases;
+    private final long edgeChanges;
+    private final double[] messages;
+    private final double[] caches;
+
+    private Plan(Map<Integer, Neuron> neuronsMap) {
+      edgeChanges = Edge.CHANGES.get();
+      neurons = neuronsMap.values().toArray(Neuron[]::new);
+      kinds = new Kind[neurons.length];
+      Map<Integer, Integer> positions = new HashMap<>();
+      int nOfEdges = 0;
+      for (int i = 0; i < neurons.length; i++) {
+        positions.put(neurons[i].getIndex(), i);
+        nOfEdges = nOfEdges + neurons[i].getIngoingEdges().size();
+        if (neurons[i].getClass() == SensingNeuron.class) {
+          kinds[i] = Kind.SENSING;
+        } else if (neurons[i].getClass() == HiddenNeuron.class) {
+          kinds[i] = Kind.HIDDEN;
+        } else if (neurons[i].getClass() == ActuatorNeuron.class) {
+          kinds[i] = Kind.ACTUATOR;
+        } else {
+          kinds[i] = Kind.OTHER;
+        }
+      }
+      edgeStarts = new int[neurons.length + 1];
+      sources = new int[nOfEdges];
+      weights = new double[nOfEdges];
+      biases = new double[nOfEdges];
+      messages = new double[neurons.length];
+      caches = new double[neurons.length];
+      int c = 0;
+      for (int i = 0; i < neurons.length; i++) {
+        edgeStarts[i] = c;
+        for (Edge edge : neurons[i].getIngoingEdges()) {
+          Integer position = positions.get(edge.getSource());
+          if (position == null) {
+            throw new IllegalArgumentException(String.format(
+                "Edge from missing neuron: [%d,%d]",
+                edge.getSource(),
+                edge.getTarget()
+            ));
+          }
+          sources[c] = position;
+          weights[c] = edge.weight;
+          biases[c] = edge.bias;
+          c = c + 1;
+        }
+        caches[i] = neurons[i].send();
+      }
+      edgeStarts[neurons.length] = c;
+    }
+
+    //tells if the neurons, the number of their ingoing edges, and the edge params are still the compiled ones
+    private boolean isValid(Map<Integer, Neuron> neuronsMap) {
+      if (edgeChanges != Edge.CHANGES.get() || neuronsMap.size() != neurons.length) {
+        return false;
+      }
+      int i = 0;
+      for (Neuron neuron : neuronsMap.values()) {
+        if (neuron != neurons[i] || neuron.getIngoingEdges().size() != edgeStarts[i + 1] - edgeStarts[i]) {
+          return false;
+        }
+        i = i + 1;
+      }
+      return true;
+    }
+
+    private void step(Grid<Voxel> voxels, SelfOrganizing controller) {
+      for (int i = 0; i < neurons.length; i++) {
+        Neuron neuron = neurons[i];
+        switch (kinds[i]) {
+          case SENSING -> messages[i] = neuron.function.applyAsDouble(
+              ((SensingNeuron) neuron).reading(voxels.get(neuron.x, neuron.y))
+          );
+          case HIDDEN, ACTUATOR -> {
+            double sum = 0d;
+            for (int e = edgeStarts[i]; e < edgeStarts[i + 1]; e++) {
+              sum = sum + caches[sources[e]] * weights[e] + biases[e];
+            }
+            messages[i] = neuron.function.applyAsDouble(sum);
+            if (kinds[i] == Kind.ACTUATOR) {
+              voxels.get(neuron.x, neuron.y).applyForce(messages[i]);
+            }
+          }
+          case OTHER -> {
+            neuron.forward(voxels, controller);
+            messages[i] = neuron.message;
+          }
+        }
+      }
+      //advance
+      for (int i = 0; i < neurons.length; i++) {
+        if (kinds[i] == Kind.OTHER) {
+          neurons[i].advance();
+          caches[i] = neurons[i].send();
+        } else {
+          caches[i] = messages[i];
+          neurons[i].message = messages[i];
+          neurons[i].cache = messages[i];
+        }
+      }
+    }
+  }
+
   public static class ActuatorNeuron extends Neuron {
 
     @JsonCreator
@@ -81,6 +206,9 @@ public class SelfOrganizing implements Controller {
 
   public static class Edge implements Serializable {
 
+    //counts the changes of the params of all the edges, such that compiled plans can tell if they are outdated
+    private static final AtomicLong CHANGES = new AtomicLong();
+
     @JsonProperty
     private final int source;
     @JsonProperty
@@ -110,6 +238,7 @@ public class SelfOrganizing implements Controller {
     public void setParams(List<Double> params) {
       weight = params.get(0);
       bias = params.get(1);
+      CHANGES.incrementAndGet();
     }
 
     public int getSource() {
@@ -314,9 +443,24 @@ public class SelfOrganizing implements Controller {
 
     @Override
     public void forward(Grid<Voxel> voxels, SelfOrganizing controller) {
-      Voxel voxel = voxels.get(x, y);
-      message = function.apply(voxel.getSensors().stream().flatMapToDouble(x -> Arrays.stream(x.getReadings()))
-          .toArray()[numSensor]);
+      message = function.apply(reading(voxels.get(x, y)));
+    }
+
+    //returns the numSensor-th value of the readings of the sensors of the voxel, taken one after the other
+    private double reading(Voxel voxel) {
+      int i = numSensor;
+      for (Sensor sensor : voxel.getSensors()) {
+        double[] readings = sensor.getReadings();
+        if (i < readings.length) {
+          return readings[i];
+        }
+        i = i - readings.length;
+      }
+      throw new ArrayIndexOutOfBoundsException(String.format(
+          "Index %d out of bounds for %d sensor readings",
+          numSensor,
+          numSensor - i
+      ));
     }
 
     @Override
@@ -344,6 +488,7 @@ public class SelfOrganizing implements Controller {
     int idx = getFirstAvailableIndex();
     Neuron newNeuron = new ActuatorNeuron(idx, x, y);
     neurons.put(idx, newNeuron);
+    plan = null;
     return newNeuron;
   }
 
@@ -353,12 +498,14 @@ public class SelfOrganizing implements Controller {
     }
     Edge edge = new Edge(source, dest, weight, bias);
     neurons.get(dest).addIngoingEdge(edge);
+    plan = null;
   }
 
   public Neuron addHiddenNeuron(MultiLayerPerceptron.ActivationFunction a, int x, int y) {
     int idx = getFirstAvailableIndex();
     Neuron newNeuron = new HiddenNeuron(idx, x, y, a);
     neurons.put(idx, newNeuron);
+    plan = null;
     return newNeuron;
   }
 
@@ -366,13 +513,23 @@ public class SelfOrganizing implements Controller {
     int idx = getFirstAvailableIndex();
     Neuron newNeuron = new SensingNeuron(idx, x, y, s);
     neurons.put(idx, newNeuron);
+    plan = null;
     return newNeuron;
   }
 
+  /**
+   * Makes each neuron compute its message from the messages sent by its source neurons at the previous step, and then
+   * send it. Neurons and edges are compiled in a plan which is rebuilt after a change done through the methods of this
+   * controller, after a {@link #reset()}, or when neurons are added, removed, or replaced in the map returned by
+   * {@link #getNeuronsMap()}, edges are added to or removed from a neuron, or the parameters of an edge are set.
+   * Replacing an edge with another one in the list of a neuron is seen after the next reset.
+   */
   @Override
   public void control(double t, Grid<Voxel> voxels) {
-    getNeurons().forEach(n -> n.forward(voxels, this));
-    getNeurons().forEach(Neuron::advance);
+    if (plan == null || !plan.isValid(neurons)) {
+      plan = new Plan(neurons);
+    }
+    plan.step(voxels, this);
   }
 
   public void copyNeuron(Neuron neuron) {
@@ -391,6 +548,7 @@ public class SelfOrganizing implements Controller {
       throw new RuntimeException(String.format("Unknown Neuron type: %s", neuron.getClass()));
     }
     neurons.put(idx, newComer);
+    plan = null;
     for (Edge edge : neuron.getIngoingEdges()) {
       addEdge(edge.getSource(), edge.getTarget(), edge.getParams()[0], edge.getParams()[1]);
     }
@@ -434,7 +592,7 @@ public class SelfOrganizing implements Controller {
   }
 
   public Grid.Key[] getValidAndDistinctCoordinates() {
-    return getNeurons().stream().map(n -> new Grid.Key(n.getX(), n.getY())).distinct().toArray(Grid.Key[]::new);
+    return getNeurons().stream().map(n -> Grid.Key.of(n.getX(), n.getY())).distinct().toArray(Grid.Key[]::new);
   }
 
   public void removeEdge(Edge edge) {
@@ -443,6 +601,7 @@ public class SelfOrganizing implements Controller {
 
   public void removeEdge(int source, int target) {
     neurons.get(target).getIngoingEdges().removeIf(e -> e.getSource() == source);
+    plan = null;
   }
 
   public void removeNeuron(Neuron neuron) {
@@ -452,11 +611,13 @@ public class SelfOrganizing implements Controller {
       }
     }
     neurons.remove(neuron.getIndex());
+    plan = null;
   }
 
   @Override
   public void reset() {
     getNeurons().forEach(Neuron::resetState);
+    plan = null;
   }
 
   @Override
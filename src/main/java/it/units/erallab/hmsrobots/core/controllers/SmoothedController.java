@@ -20,6 +20,7 @@ package it.units.erallab.hmsrobots.core.controllers;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import it.units.erallab.hmsrobots.core.objects.Voxel;
+import it.units.erallab.hmsrobots.util.DoubleGrid;
 import it.units.erallab.hmsrobots.util.Grid;
 
 public class SmoothedController extends AbstractController {
@@ -30,7 +31,7 @@ public class SmoothedController extends AbstractController {
   private final double controlSignalSpeed;
 
   double lastT = Double.NEGATIVE_INFINITY;
-  Grid<Double> currentControlSignals = null;
+  DoubleGrid currentControlSignals = null;
 
   @JsonCreator
   public SmoothedController(
@@ -42,30 +43,29 @@ public class SmoothedController extends AbstractController {
   }
 
   @Override
-  public Grid<Double> computeControlSignals(double t, Grid<Voxel> voxels) {
-    Grid<Double> targetControlSignals = innerController.computeControlSignals(t, voxels);
+  public DoubleGrid computeControlSignals(double t, Grid<Voxel> voxels) {
+    DoubleGrid targetControlSignals = innerController.computeControlSignals(t, voxels);
     if (currentControlSignals == null) {
-      currentControlSignals = Grid.create(targetControlSignals, v -> 0d);
+      currentControlSignals = new DoubleGrid(targetControlSignals.getW(), targetControlSignals.getH());
       lastT = t;
     }
     double dT = t - lastT;
     double dControlSignal = dT * controlSignalSpeed;
     lastT = t;
-    return Grid.create(targetControlSignals.getW(), targetControlSignals.getH(), (x, y) -> {
-      Double targetControlSignal = targetControlSignals.get(x, y);
-      double currentControlSignal = currentControlSignals.get(x, y);
-      if (targetControlSignal == null) {
-        return 0d;
+    for (int x = 0; x < targetControlSignals.getW(); x++) {
+      for (int y = 0; y < targetControlSignals.getH(); y++) {
+        double targetControlSignal = targetControlSignals.get(x, y);
+        double currentControlSignal = currentControlSignals.get(x, y);
+        if (Math.abs(targetControlSignal - currentControlSignal) <= dControlSignal) {
+          currentControlSignals.set(x, y, targetControlSignal);
+        } else if (targetControlSignal > currentControlSignal) {
+          currentControlSignals.set(x, y, currentControlSignal + dControlSignal);
+        } else {
+          currentControlSignals.set(x, y, currentControlSignal - dControlSignal);
+        }
       }
-      if (Math.abs(targetControlSignal - currentControlSignal) <= dControlSignal) {
-        currentControlSignals.set(x, y, targetControlSignal);
-      } else if (targetControlSignal > currentControlSignal) {
-        currentControlSignals.set(x, y, currentControlSignals.get(x, y) + dControlSignal);
-      } else {
-        currentControlSignals.set(x, y, currentControlSignals.get(x, y) - dControlSignal);
-      }
-      return currentControlSignals.get(x, y);
-    });
+    }
+    return currentControlSignals.copy();
   }
 
   @Override
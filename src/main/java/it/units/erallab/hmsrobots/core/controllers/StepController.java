@@ -22,6 +22,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import it.units.erallab.hmsrobots.core.objects.Voxel;
 import it.units.erallab.hmsrobots.core.snapshots.Snapshot;
 import it.units.erallab.hmsrobots.core.snapshots.Snapshottable;
+import it.units.erallab.hmsrobots.util.DoubleGrid;
 import it.units.erallab.hmsrobots.util.Grid;
 
 public class StepController extends AbstractController implements Snapshottable {
@@ -35,7 +36,7 @@ public class StepController extends AbstractController implements Snapshottable
   private final double stepT;
 
   double lastT = Double.NEGATIVE_INFINITY;
-  Grid<Double> lastControlSignals = null;
+  DoubleGrid lastControlSignals = null;
 
   @JsonCreator
   public StepController(
@@ -47,10 +48,10 @@ public class StepController extends AbstractController implements Snapshottable
   }
 
   @Override
-  public Grid<Double> computeControlSignals(double t, Grid<Voxel> voxels) {
-    Grid<Double> controlSignals = innerController.computeControlSignals(t, voxels);
+  public DoubleGrid computeControlSignals(double t, Grid<Voxel> voxels) {
+    DoubleGrid controlSignals = innerController.computeControlSignals(t, voxels);
     if (t - lastT >= stepT || lastControlSignals == null) {
-      lastControlSignals = Grid.create(controlSignals, v -> v);
+      lastControlSignals = controlSignals.copy();
       lastT = t;
     }
     return lastControlSignals;
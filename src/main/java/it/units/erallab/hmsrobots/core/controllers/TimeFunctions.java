@@ -24,6 +24,7 @@ import it.units.erallab.hmsrobots.core.snapshots.Snapshot;
 import it.units.erallab.hmsrobots.core.snapshots.Snapshottable;
 import it.units.erallab.hmsrobots.core.snapshots.StackedScopedReadings;
 import it.units.erallab.hmsrobots.util.DoubleRange;
+import it.units.erallab.hmsrobots.util.DoubleGrid;
 import it.units.erallab.hmsrobots.util.Grid;
 import it.units.erallab.hmsrobots.util.SerializableFunction;
 
@@ -47,17 +48,19 @@ public class TimeFunctions extends AbstractController implements Snapshottable {
   }
 
   @Override
-  public Grid<Double> computeControlSignals(double t, Grid<Voxel> voxels) {
-    outputs = new double[(int) voxels.values().stream().filter(Objects::nonNull).count()];
-    Grid<Double> controlSignals = Grid.create(voxels.getW(), voxels.getH());
+  public DoubleGrid computeControlSignals(double t, Grid<Voxel> voxels) {
+    outputs = new double[(int) voxels.count(Objects::nonNull)];
+    DoubleGrid controlSignals = new DoubleGrid(voxels.getW(), voxels.getH());
     int c = 0;
-    for (Grid.Entry<Voxel> entry : voxels) {
-      SerializableFunction<Double, Double> function = functions.get(entry.key().x(), entry.key().y());
-      if ((entry.value() != null) && (function != null)) {
-        double v = function.apply(t);
-        controlSignals.set(entry.key().x(), entry.key().y(), v);
-        outputs[c] = v;
-        c = c + 1;
+    for (int y = 0; y < voxels.getH(); y++) {
+      for (int x = 0; x < voxels.getW(); x++) {
+        SerializableFunction<Double, Double> function = functions.get(x, y);
+        if ((voxels.get(x, y) != null) && (function != null)) {
+          double v = function.apply(t);
+          controlSignals.set(x, y, v);
+          outputs[c] = v;
+          c = c + 1;
+        }
       }
     }
     return controlSignals;
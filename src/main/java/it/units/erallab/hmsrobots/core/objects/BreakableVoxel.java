@@ -21,7 +21,6 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import it.units.erallab.hmsrobots.core.geometry.Point2;
 import it.units.erallab.hmsrobots.core.geometry.Poly;
 import it.units.erallab.hmsrobots.core.sensors.Sensor;
-import it.units.erallab.hmsrobots.core.sensors.Touch;
 import it.units.erallab.hmsrobots.core.snapshots.VoxelPoly;
 import it.units.erallab.hmsrobots.util.DoubleRange;
 import org.apache.commons.lang3.ArrayUtils;
@@ -185,6 +184,28 @@ public class BreakableVoxel extends Voxel {
     super.applyForce(f);
   }
 
+  @Override
+  public int copySensorReadings(double[] buffer, int offset) {
+    switch (state.get(ComponentType.SENSORS)) {
+      case NONE -> {
+        return super.copySensorReadings(buffer, offset);
+      }
+      case FROZEN -> System.arraycopy(sensorReadings, 0, buffer, offset, sensorReadings.length);
+      case ZERO -> Arrays.fill(buffer, offset, offset + sensorReadings.length, 0d);
+      case RANDOM -> {
+        int n = 0;
+        for (Sensor sensor : getSensors()) {
+          for (DoubleRange domain : sensor.getDomains()) {
+            buffer[offset + n] = random.nextDouble() * domain.extent() + domain.min();
+            n = n + 1;
+          }
+        }
+        return n;
+      }
+    }
+    return sensorReadings.length;
+  }
+
   @Override
   public double[] getSensorReadings() {
     return switch (state.get(ComponentType.SENSORS)) {
@@ -203,7 +224,7 @@ public class BreakableVoxel extends Voxel {
         Poly.of(getVertices().toArray(Point2[]::new)),
         getAngle(),
         getLinearVelocity(),
-        Touch.isTouchingGround(this),
+        isTouchingGround(),
         getAreaRatio(),
         getAreaRatioEnergy(),
         getLastAppliedForce(),
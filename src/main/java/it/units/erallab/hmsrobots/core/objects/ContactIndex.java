@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.core.objects;
+
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.dynamics.TimeStep;
+import org.dyn4j.world.ContactCollisionData;
+import org.dyn4j.world.PhysicsWorld;
+import org.dyn4j.world.World;
+import org.dyn4j.world.listener.ContactListener;
+import org.dyn4j.world.listener.ContactListenerAdapter;
+import org.dyn4j.world.listener.StepListenerAdapter;
+
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Tells, for the bodies registered to it, if they are touching the ground or a body of another owner, as
+ * {@link World#getInContactBodies(org.dyn4j.dynamics.PhysicsBody, boolean)} with {@code false} would do, but in
+ * constant time and without allocating. The index is built during each step of the world from the collisions
+ * reported to the contact listeners by the last collision detection of the step, i.e., the one which also builds the
+ * contacts returned by the world.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class ContactIndex extends ContactListenerAdapter<Body> {
+
+  private final Map<Body, Integer> ids;
+  private final BitSet touchingGround;
+  private final BitSet touchingForeign;
+  private int nextId;
+
+  private ContactIndex() {
+    ids = new IdentityHashMap<>();
+    touchingGround = new BitSet();
+    touchingForeign = new BitSet();
+  }
+
+  /**
+   * Returns the contact index of the provided world, creating and attaching it to the world if the world does not
+   * have one yet.
+   */
+  public static ContactIndex of(World<Body> world) {
+    for (ContactListener<Body> listener : world.getContactListeners()) {
+      if (listener instanceof ContactIndex contactIndex) {
+        return contactIndex;
+      }
+    }
+    ContactIndex contactIndex = new ContactIndex();
+    world.addContactListener(contactIndex);
+    world.addStepListener(new StepListenerAdapter<>() {
+      @Override
+      public void postSolve(TimeStep step, PhysicsWorld<Body, ?> world) {
+        //the last collision detection of the step follows this event
+        contactIndex.touchingGround.clear();
+        contactIndex.touchingForeign.clear();
+      }
+    });
+    return contactIndex;
+  }
+
+  private static boolean isGround(Body body) {
+    return body.getUserData() != null && body.getUserData().equals(Ground.class);
+  }
+
+  @Override
+  public void collision(ContactCollisionData<Body> collision) {
+    if (collision.getContactConstraint().isSensor()) {
+      return;
+    }
+    update(collision.getBody1(), collision.getBody2());
+    update(collision.getBody2(), collision.getBody1());
+  }
+
+  public boolean isTouchingForeign(int id) {
+    return touchingForeign.get(id);
+  }
+
+  public boolean isTouchingGround(int id) {
+    return touchingGround.get(id);
+  }
+
+  public int register(Body body) {
+    return ids.computeIfAbsent(body, b -> nextId++);
+  }
+
+  public void unregister(Body body) {
+    Integer id = ids.remove(body);
+    if (id != null) {
+      touchingGround.clear(id);
+      touchingForeign.clear(id);
+    }
+  }
+
+  private void update(Body body, Body other) {
+    Integer id = ids.get(body);
+    if (id == null) {
+      return;
+    }
+    if (isGround(other)) {
+      touchingGround.set(id);
+    }
+    if (other.getUserData() == null || other.getUserData() != body.getUserData()) {
+      touchingForeign.set(id);
+    }
+  }
+
+}
@@ -38,47 +38,71 @@ public class Ground extends RigidBody {
 
   private final double[] xs;
   private final double[] ys;
-  private final List<Vector2> polygon;
+  private final Geometry geometry;
 
-  public Ground(double[] xs, double[] ys) {
-    this.xs = xs;
-    this.ys = ys;
-    if (xs.length != ys.length) {
-      throw new IllegalArgumentException("xs[] and ys[] must have the same length");
-    }
-    if (xs.length < 2) {
-      throw new IllegalArgumentException("There must be at least 2 points");
-    }
-    double[] sortedXs = Arrays.copyOf(xs, xs.length);
-    Arrays.sort(sortedXs);
-    if (!Arrays.equals(xs, sortedXs)) {
-      throw new IllegalArgumentException("x coordinates must be sorted");
+  /**
+   * The geometry of a ground, i.e., the convex polygons it is made of and its outline. It is immutable and can hence be
+   * shared among the many grounds, e.g., one for each episode of a task, having the same profile.
+   */
+  public static class Geometry {
+    private final double[] xs;
+    private final double[] ys;
+    private final Polygon[] polygons;
+    private final Poly outline;
+
+    public Geometry(double[] xs, double[] ys) {
+      this.xs = xs;
+      this.ys = ys;
+      if (xs.length != ys.length) {
+        throw new IllegalArgumentException("xs[] and ys[] must have the same length");
+      }
+      if (xs.length < 2) {
+        throw new IllegalArgumentException("There must be at least 2 points");
+      }
+      double[] sortedXs = Arrays.copyOf(xs, xs.length);
+      Arrays.sort(sortedXs);
+      if (!Arrays.equals(xs, sortedXs)) {
+        throw new IllegalArgumentException("x coordinates must be sorted");
+      }
+      //find min y
+      double baseY = Arrays.stream(ys).min().getAsDouble() - MIN_Y_THICKNESS;
+      //build polygons and outline
+      polygons = new Polygon[xs.length - 1];
+      Point2[] vertexes = new Point2[xs.length + 2];
+      vertexes[0] = Point2.of(0, baseY);
+      for (int i = 1; i < xs.length; i++) {
+        polygons[i - 1] = new Polygon(
+            new Vector2(0, ys[i - 1]),
+            new Vector2(0, baseY),
+            new Vector2(xs[i] - xs[i - 1], baseY),
+            new Vector2(xs[i] - xs[i - 1], ys[i])
+        );
+        vertexes[i] = Point2.of(xs[i - 1], ys[i - 1]);
+      }
+      vertexes[xs.length] = Point2.of(xs[xs.length - 1], ys[xs.length - 1]);
+      vertexes[xs.length + 1] = Point2.of(xs[xs.length - 1], baseY);
+      outline = Poly.of(vertexes);
     }
-    //init collections
+  }
+
+  public Ground(double[] xs, double[] ys) {
+    this(new Geometry(xs, ys));
+  }
+
+  public Ground(Geometry geometry) {
+    this.geometry = geometry;
+    xs = geometry.xs;
+    ys = geometry.ys;
+    //build bodies, sharing the polygons of the geometry
     bodies = new ArrayList<>(xs.length - 1);
-    polygon = new ArrayList<>(xs.length + 2);
-    //find min y
-    double baseY = Arrays.stream(ys).min().getAsDouble() - MIN_Y_THICKNESS;
-    polygon.add(new Vector2(0, baseY));
-    //build bodies and polygon
     for (int i = 1; i < xs.length; i++) {
-      Polygon bodyPoly = new Polygon(
-          new Vector2(0, ys[i - 1]),
-          new Vector2(0, baseY),
-          new Vector2(xs[i] - xs[i - 1], baseY),
-          new Vector2(xs[i] - xs[i - 1], ys[i])
-      );
       Body body = new Body();
-      body.addFixture(bodyPoly);
+      body.addFixture(geometry.polygons[i - 1]);
       body.setMass(MassType.INFINITE);
       body.translate(xs[i - 1], 0);
       body.setUserData(Ground.class);
-      //body.translate(-xs[0], -minY);
       bodies.add(body);
-      polygon.add(new Vector2(xs[i - 1], ys[i - 1]));
     }
-    polygon.add(new Vector2(xs[xs.length - 1], ys[xs.length - 1]));
-    polygon.add(new Vector2(xs[xs.length - 1], baseY));
   }
 
   @Override
@@ -92,22 +116,72 @@ public class Ground extends RigidBody {
     return bodies;
   }
 
+  public Geometry getGeometry() {
+    return geometry;
+  }
+
   @Override
   public Snapshot getSnapshot() {
-    Point2[] vertices = new Point2[polygon.size()];
-    for (int i = 0; i < vertices.length; i++) {
-      vertices[i] = Point2.of(polygon.get(i));
+    return new Snapshot(geometry.outline, getClass());
+  }
+
+  /**
+   * Returns the index {@code i} of the first segment {@code [xs[i-1], xs[i]]} containing {@code x}, searching in
+   * {@code [from, xs.length-1]}, or {@code -1} if no segment contains it.
+   */
+  private int segment(double x, int from) {
+    if (!(x >= xs[0] && x <= xs[xs.length - 1])) {
+      return -1;
     }
-    return new Snapshot(Poly.of(vertices), getClass());
+    //find the lowest i such that xs[i] >= x
+    int lo = from;
+    int hi = xs.length - 1;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (xs[mid] < x) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  private double yAt(double x, int i) {
+    if (i < 0) {
+      return Double.NaN;
+    }
+    return (x - xs[i - 1]) * (ys[i] - ys[i - 1]) / (xs[i] - xs[i - 1]) + ys[i - 1];
   }
 
   public double yAt(double x) {
-    for (int i = 1; i < xs.length; i++) {
-      if ((xs[i - 1] <= x) && (x <= xs[i])) {
-        return (x - xs[i - 1]) * (ys[i] - ys[i - 1]) / (xs[i] - xs[i - 1]) + ys[i - 1];
+    return yAt(x, segment(x, 1));
+  }
+
+  /**
+   * Writes in {@code out} the y coordinate of the ground at each of the provided x coordinates, as {@link
+   * #yAt(double)} would do. Lookups are faster if the x coordinates are sorted.
+   */
+  public void yAt(double[] xs, double[] out) {
+    if (xs.length != out.length) {
+      throw new IllegalArgumentException(String.format(
+          "xs[] and out[] must have the same length: %d vs. %d",
+          xs.length,
+          out.length
+      ));
+    }
+    int from = 1;
+    for (int j = 0; j < xs.length; j++) {
+      //restart the search from the beginning if the x coordinates are not sorted
+      if (j > 0 && !(xs[j] >= xs[j - 1])) {
+        from = 1;
+      }
+      int i = segment(xs[j], from);
+      out[j] = yAt(xs[j], i);
+      if (i > 0) {
+        from = i;
       }
     }
-    return Double.NaN;
   }
 
 }
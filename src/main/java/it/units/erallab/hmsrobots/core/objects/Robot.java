@@ -29,10 +29,14 @@ import it.units.erallab.hmsrobots.core.snapshots.Snapshottable;
 import it.units.erallab.hmsrobots.core.snapshots.VoxelPoly;
 import it.units.erallab.hmsrobots.util.Grid;
 import org.dyn4j.dynamics.Body;
+import org.dyn4j.dynamics.TimeStep;
 import org.dyn4j.dynamics.joint.Joint;
 import org.dyn4j.dynamics.joint.WeldJoint;
 import org.dyn4j.geometry.Vector2;
+import org.dyn4j.world.PhysicsWorld;
 import org.dyn4j.world.World;
+import org.dyn4j.world.listener.StepListener;
+import org.dyn4j.world.listener.StepListenerAdapter;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
@@ -53,6 +57,10 @@ public class Robot implements Actionable, Serializable, WorldObject, Snapshottab
   private final Grid<Voxel> voxels;
 
   private transient List<Joint<Body>> joints;
+  private transient World<Body> world;
+  private transient StepListener<Body> stepListener;
+  private transient RobotGeometry geometry;
+  private transient boolean geometryValid;
 
   @JsonCreator
   public Robot(
@@ -72,20 +80,28 @@ public class Robot implements Actionable, Serializable, WorldObject, Snapshottab
 
   @Override
   public void act(final double t) {
-    voxels.values().stream().filter(Objects::nonNull).forEach(v -> v.act(t));
+    voxels.forEachNonNull((x, y, v) -> v.act(t));
     controller.control(t, voxels);
   }
 
   @Override
   public void addTo(World<Body> world) {
-    for (Voxel voxel : voxels.values()) {
-      if (voxel != null) {
-        voxel.addTo(world);
-      }
-    }
+    voxels.forEachNonNull((x, y, v) -> v.addTo(world));
     for (Joint<Body> joint : joints) {
       world.addJoint(joint);
     }
+    if (this.world != null) {
+      this.world.removeStepListener(stepListener);
+    }
+    this.world = world;
+    stepListener = new StepListenerAdapter<>() {
+      @Override
+      public void end(TimeStep step, PhysicsWorld<Body, ?> world) {
+        geometryValid = false;
+      }
+    };
+    world.addStepListener(stepListener);
+    geometryValid = false;
   }
 
   private void assemble() {
@@ -113,20 +129,19 @@ public class Robot implements Actionable, Serializable, WorldObject, Snapshottab
     }
   }
 
-  @SuppressWarnings("OptionalGetWithoutIsPresent")
   @Override
   public BoundingBox boundingBox() {
-    return voxels.values().stream().filter(Objects::nonNull).map(Voxel::boundingBox).reduce(BoundingBox::largest).get();
+    return getGeometry().boundingBox();
   }
 
   @Override
   public Point2 center() {
-    return Point2.average(voxels.values().stream().filter(Objects::nonNull).map(Voxel::center).toArray(Point2[]::new));
+    return getGeometry().center();
   }
 
   @Override
   public double area() {
-    return voxels.values().stream().filter(Objects::nonNull).mapToDouble(Voxel::area).sum();
+    return getGeometry().area();
   }
 
   public Controller getController() {
@@ -147,6 +162,22 @@ public class Robot implements Actionable, Serializable, WorldObject, Snapshottab
     return snapshot;
   }
 
+  /**
+   * Returns the current geometry of this robot. Once this robot has been added to a world, the geometry is computed
+   * at most once after each step of the world and the same instance is updated in place: hence it should not be
+   * retained across steps.
+   */
+  public RobotGeometry getGeometry() {
+    if (geometry == null) {
+      geometry = new RobotGeometry();
+    }
+    if (!geometryValid) {
+      geometry.update(voxels);
+      geometryValid = world != null;
+    }
+    return geometry;
+  }
+
   public Grid<Voxel> getVoxels() {
     return voxels;
   }
@@ -159,7 +190,8 @@ public class Robot implements Actionable, Serializable, WorldObject, Snapshottab
 
   @Override
   public void reset() {
-    voxels.values().stream().filter(Objects::nonNull).forEach(Voxel::reset);
+    voxels.forEachNonNull((x, y, v) -> v.reset());
+    geometryValid = false;
     assemble();
     controller.reset();
   }
@@ -170,10 +202,7 @@ public class Robot implements Actionable, Serializable, WorldObject, Snapshottab
   }
 
   public void translate(Vector2 v) {
-    for (Voxel voxel : voxels.values()) {
-      if (voxel != null) {
-        voxel.translate(v);
-      }
-    }
+    voxels.forEachNonNull((x, y, voxel) -> voxel.translate(v));
+    geometryValid = false;
   }
 }
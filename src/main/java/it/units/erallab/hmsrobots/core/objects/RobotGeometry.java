@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.core.objects;
+
+import it.units.erallab.hmsrobots.core.geometry.BoundingBox;
+import it.units.erallab.hmsrobots.core.geometry.Point2;
+import it.units.erallab.hmsrobots.util.Grid;
+
+/**
+ * The geometry of a {@link Robot} at a given time: the vertexes, the center, and the area of each voxel, and the
+ * bounding box, the center, and the area of the whole robot. It is computed in a single pass over the voxels and it
+ * is kept by the robot until the world is stepped again, or the robot is moved.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class RobotGeometry {
+
+  public static final int N_OF_VERTEXES = 4;
+
+  private int w;
+  private int h;
+  private boolean[] present;
+  private double[] vertexes;
+  private double[] centers;
+  private double[] areas;
+  private BoundingBox boundingBox;
+  private Point2 center;
+  private double area;
+
+  RobotGeometry() {
+  }
+
+  public double area() {
+    return area;
+  }
+
+  public BoundingBox boundingBox() {
+    return boundingBox;
+  }
+
+  public Point2 center() {
+    return center;
+  }
+
+  private int index(int x, int y) {
+    if (x < 0 || x >= w || y < 0 || y >= h || !present[y * w + x]) {
+      throw new IllegalArgumentException(String.format("No voxel at %d,%d on a %dx%d grid", x, y, w, h));
+    }
+    return y * w + x;
+  }
+
+  public boolean isPresent(int x, int y) {
+    return x >= 0 && x < w && y >= 0 && y < h && present[y * w + x];
+  }
+
+  void update(Grid<Voxel> voxels) {
+    if (w != voxels.getW() || h != voxels.getH()) {
+      w = voxels.getW();
+      h = voxels.getH();
+      present = new boolean[w * h];
+      vertexes = new double[w * h * N_OF_VERTEXES * 2];
+      centers = new double[w * h * 2];
+      areas = new double[w * h];
+    }
+    double minX = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    double cx = 0d;
+    double cy = 0d;
+    double n = 0d;
+    area = 0d;
+    for (int y = 0; y < h; y++) {
+      for (int x = 0; x < w; x++) {
+        int i = y * w + x;
+        Voxel voxel = voxels.get(x, y);
+        present[i] = voxel != null;
+        if (voxel == null) {
+          continue;
+        }
+        //vertexes
+        int offset = i * N_OF_VERTEXES * 2;
+        voxel.fillVertexes(vertexes, offset);
+        for (int j = 0; j < N_OF_VERTEXES; j++) {
+          minX = Math.min(minX, vertexes[offset + 2 * j]);
+          maxX = Math.max(maxX, vertexes[offset + 2 * j]);
+          minY = Math.min(minY, vertexes[offset + 2 * j + 1]);
+          maxY = Math.max(maxY, vertexes[offset + 2 * j + 1]);
+        }
+        //center
+        Point2 voxelCenter = voxel.center();
+        centers[2 * i] = voxelCenter.x();
+        centers[2 * i + 1] = voxelCenter.y();
+        cx = cx + centers[2 * i];
+        cy = cy + centers[2 * i + 1];
+        n = n + 1;
+        //area
+        areas[i] = voxel.area();
+        area = area + areas[i];
+      }
+    }
+    if (n == 0) {
+      throw new IllegalStateException("Cannot compute the geometry of a robot without voxels");
+    }
+    boundingBox = BoundingBox.of(minX, minY, maxX, maxY);
+    center = Point2.of(cx / n, cy / n);
+  }
+
+  public double voxelArea(int x, int y) {
+    return areas[index(x, y)];
+  }
+
+  public double voxelCenterX(int x, int y) {
+    return centers[2 * index(x, y)];
+  }
+
+  public double voxelCenterY(int x, int y) {
+    return centers[2 * index(x, y) + 1];
+  }
+
+  public double voxelVertexX(int x, int y, int vertex) {
+    return vertexes[index(x, y) * N_OF_VERTEXES * 2 + 2 * vertex];
+  }
+
+  public double voxelVertexY(int x, int y, int vertex) {
+    return vertexes[index(x, y) * N_OF_VERTEXES * 2 + 2 * vertex + 1];
+  }
+
+}
@@ -22,21 +22,23 @@ import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import it.units.erallab.hmsrobots.core.Actionable;
 import it.units.erallab.hmsrobots.core.geometry.*;
 import it.units.erallab.hmsrobots.core.sensors.Sensor;
-import it.units.erallab.hmsrobots.core.sensors.Touch;
 import it.units.erallab.hmsrobots.core.snapshots.Snapshot;
 import it.units.erallab.hmsrobots.core.snapshots.Snapshottable;
 import it.units.erallab.hmsrobots.core.snapshots.VoxelPoly;
 import it.units.erallab.hmsrobots.util.DoubleRange;
-import org.apache.commons.lang3.ArrayUtils;
 import org.dyn4j.collision.Filter;
 import org.dyn4j.dynamics.Body;
+import org.dyn4j.dynamics.TimeStep;
 import org.dyn4j.dynamics.joint.DistanceJoint;
 import org.dyn4j.dynamics.joint.Joint;
 import org.dyn4j.geometry.MassType;
 import org.dyn4j.geometry.Rectangle;
 import org.dyn4j.geometry.Transform;
 import org.dyn4j.geometry.Vector2;
+import org.dyn4j.world.PhysicsWorld;
 import org.dyn4j.world.World;
+import org.dyn4j.world.listener.StepListener;
+import org.dyn4j.world.listener.StepListenerAdapter;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
@@ -99,6 +101,16 @@ public class Voxel implements Actionable, Serializable, Snapshottable, WorldObje
   private transient double areaRatioEnergy;
   private transient double controlEnergy;
   private transient double lastAppliedForce;
+  private transient StepListener<Body> stepListener;
+  private transient boolean stateValid;
+  private transient double[] vertexes;
+  private transient double area;
+  private transient double angle;
+  private transient Point2 center;
+  private transient Point2 linearVelocity;
+  private transient VoxelPoly voxelPoly;
+  private transient ContactIndex contactIndex;
+  private transient int[] contactIds;
 
   @JsonCreator
   public Voxel(
@@ -199,6 +211,7 @@ public class Voxel implements Actionable, Serializable, Snapshottable, WorldObje
     double areaRatio = getAreaRatio();
     areaRatioEnergy = areaRatioEnergy + areaRatio * areaRatio;
     controlEnergy = controlEnergy + lastAppliedForce * lastAppliedForce;
+    voxelPoly = null;
     sensors.forEach(s -> s.act(t));
   }
 
@@ -211,7 +224,9 @@ public class Voxel implements Actionable, Serializable, Snapshottable, WorldObje
       for (Joint<Body> joint : springJoints) {
         this.world.removeJoint(joint);
       }
+      this.world.removeStepListener(stepListener);
     }
+    unregisterContacts();
     this.world = world;
     for (Body body : vertexBodies) {
       world.addBody(body);
@@ -219,6 +234,19 @@ public class Voxel implements Actionable, Serializable, Snapshottable, WorldObje
     for (Joint<Body> joint : springJoints) {
       world.addJoint(joint);
     }
+    contactIndex = ContactIndex.of(world);
+    contactIds = new int[vertexBodies.length];
+    for (int i = 0; i < vertexBodies.length; i++) {
+      contactIds[i] = contactIndex.register(vertexBodies[i]);
+    }
+    stepListener = new StepListenerAdapter<>() {
+      @Override
+      public void end(TimeStep step, PhysicsWorld<Body, ?> world) {
+        invalidateState();
+      }
+    };
+    world.addStepListener(stepListener);
+    invalidateState();
   }
 
   public void applyForce(double f) {
@@ -226,6 +254,7 @@ public class Voxel implements Actionable, Serializable, Snapshottable, WorldObje
       f = Math.signum(f);
     }
     lastAppliedForce = f;
+    voxelPoly = null;
     for (DistanceJoint<Body> joint : springJoints) {
       Voxel.SpringRange range = (SpringRange) joint.getUserData();
       if (f >= 0) { // shrink
@@ -480,45 +509,35 @@ public class Voxel implements Actionable, Serializable, Snapshottable, WorldObje
 
   @Override
   public BoundingBox boundingBox() {
+    updateState();
     double minX = Double.POSITIVE_INFINITY;
     double maxX = Double.NEGATIVE_INFINITY;
     double minY = Double.POSITIVE_INFINITY;
     double maxY = Double.NEGATIVE_INFINITY;
     for (int i = 0; i < 4; i++) {
-      Vector2 point = getIndexedVertex(i, 3 - i);
-      minX = Math.min(minX, point.x);
-      maxX = Math.max(maxX, point.x);
-      minY = Math.min(minY, point.y);
-      maxY = Math.max(maxY, point.y);
+      minX = Math.min(minX, vertexes[2 * i]);
+      maxX = Math.max(maxX, vertexes[2 * i]);
+      minY = Math.min(minY, vertexes[2 * i + 1]);
+      maxY = Math.max(maxY, vertexes[2 * i + 1]);
     }
     return BoundingBox.of(Point2.of(minX, minY), Point2.of(maxX, maxY));
   }
 
   @Override
   public Point2 center() {
-    double xc = 0d;
-    double yc = 0d;
-    for (Body vertex : vertexBodies) {
-      xc = xc + vertex.getWorldCenter().x;
-      yc = yc + vertex.getWorldCenter().y;
-    }
-    return Point2.of(xc / (double) vertexBodies.length, yc / (double) vertexBodies.length);
+    updateState();
+    return center;
   }
 
   @Override
   public double area() {
-    return Poly.of(
-        Point2.of(getIndexedVertex(0, 3)),
-        Point2.of(getIndexedVertex(1, 2)),
-        Point2.of(getIndexedVertex(2, 1)),
-        Point2.of(getIndexedVertex(3, 0))
-    ).area();
+    updateState();
+    return area;
   }
 
   public double getAngle() {
-    Vector2 upSide = vertexBodies[1].getWorldCenter().copy().subtract(vertexBodies[0].getWorldCenter());
-    Vector2 downSide = vertexBodies[2].getWorldCenter().copy().subtract(vertexBodies[3].getWorldCenter());
-    return (upSide.getDirection() + downSide.getDirection()) / 2d;
+    updateState();
+    return angle;
   }
 
   public double getAreaRatio() {
@@ -533,12 +552,13 @@ public class Voxel implements Actionable, Serializable, Snapshottable, WorldObje
     return controlEnergy;
   }
 
-  private Vector2 getIndexedVertex(int i, int j) {
-    Transform t = vertexBodies[i].getTransform();
-    Rectangle rectangle = (Rectangle) vertexBodies[i].getFixture(0).getShape();
-    Vector2 tV = rectangle.getVertices()[j].copy();
-    t.transform(tV);
-    return tV;
+  /**
+   * Writes the coordinates of the four vertexes of this voxel, in the same order of {@link #getVertices()}, in the
+   * provided array, as x0, y0, x1, y1, ..., starting from the provided offset.
+   */
+  public void fillVertexes(double[] vertexes, int offset) {
+    updateState();
+    System.arraycopy(this.vertexes, 0, vertexes, offset, this.vertexes.length);
   }
 
   public double getLastAppliedForce() {
@@ -546,20 +566,43 @@ public class Voxel implements Actionable, Serializable, Snapshottable, WorldObje
   }
 
   public Point2 getLinearVelocity() {
-    double x = 0d;
-    double y = 0d;
-    for (Body vertex : vertexBodies) {
-      x = x + vertex.getLinearVelocity().x;
-      y = y + vertex.getLinearVelocity().y;
+    updateState();
+    return linearVelocity;
+  }
+
+  /**
+   * Writes the readings of the sensors of this voxel, one after the other, in {@code buffer} starting at {@code
+   * offset}, as returned by {@link #getSensorReadings()}, and returns the number of written values. Controllers read
+   * the voxel through this method, hence subclasses altering the readings should override both methods consistently.
+   * {@link #getSensorReadings()} does not invoke this method, so an override may build upon {@code
+   * super.getSensorReadings()}.
+   */
+  public int copySensorReadings(double[] buffer, int offset) {
+    int n = 0;
+    for (Sensor sensor : sensors) {
+      double[] readings = sensor.getReadings();
+      if (readings != null) {
+        System.arraycopy(readings, 0, buffer, offset + n, readings.length);
+        n = n + readings.length;
+      }
     }
-    return Point2.of(x / (double) vertexBodies.length, y / (double) vertexBodies.length);
+    return n;
   }
 
   public double[] getSensorReadings() {
-    return sensors.stream()
-        .map(Sensor::getReadings)
-        .reduce(ArrayUtils::addAll)
-        .orElse(new double[sensors.stream().mapToInt(s -> s.getDomains().length).sum()]);
+    int n = 0;
+    for (Sensor sensor : sensors) {
+      n = n + (sensor.getReadings() == null ? 0 : sensor.getReadings().length);
+    }
+    double[] readings = new double[n];
+    int c = 0;
+    for (Sensor sensor : sensors) {
+      if (sensor.getReadings() != null) {
+        System.arraycopy(sensor.getReadings(), 0, readings, c, sensor.getReadings().length);
+        c = c + sensor.getReadings().length;
+      }
+    }
+    return readings;
   }
 
   public List<Sensor> getSensors() {
@@ -594,20 +637,32 @@ public class Voxel implements Actionable, Serializable, Snapshottable, WorldObje
   }
 
   protected List<Point2> getVertices() {
+    updateState();
     return List.of(
-        Point2.of(getIndexedVertex(0, 3)),
-        Point2.of(getIndexedVertex(1, 2)),
-        Point2.of(getIndexedVertex(2, 1)),
-        Point2.of(getIndexedVertex(3, 0))
+        Point2.of(vertexes[0], vertexes[1]),
+        Point2.of(vertexes[2], vertexes[3]),
+        Point2.of(vertexes[4], vertexes[5]),
+        Point2.of(vertexes[6], vertexes[7])
     );
   }
 
+  /**
+   * Returns the {@link VoxelPoly} describing the current state of this voxel. The same instance is returned until the
+   * world is stepped, this voxel is moved, or its energies or applied force change.
+   */
   public VoxelPoly getVoxelPoly() {
+    if (voxelPoly == null || !stateValid) {
+      voxelPoly = buildVoxelPoly();
+    }
+    return voxelPoly;
+  }
+
+  private VoxelPoly buildVoxelPoly() {
     return new VoxelPoly(
         Poly.of(getVertices().toArray(Point2[]::new)),
         getAngle(),
         getLinearVelocity(),
-        Touch.isTouchingGround(this),
+        isTouchingGround(),
         getAreaRatio(),
         getAreaRatioEnergy(),
         getLastAppliedForce(),
@@ -619,6 +674,33 @@ public class Voxel implements Actionable, Serializable, Snapshottable, WorldObje
     return world;
   }
 
+  /**
+   * Tells if any of the vertex bodies of this voxel is in contact with a body not belonging to the same owner.
+   */
+  public boolean isTouching() {
+    if (contactIndex == null) {
+      return false;
+    }
+    for (int id : contactIds) {
+      if (contactIndex.isTouchingForeign(id)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public boolean isTouchingGround() {
+    if (contactIndex == null) {
+      return false;
+    }
+    for (int id : contactIds) {
+      if (contactIndex.isTouchingGround(id)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   @Serial
   private void readObject(ObjectInputStream ois) throws ClassNotFoundException, IOException {
     ois.defaultReadObject();
@@ -637,9 +719,16 @@ public class Voxel implements Actionable, Serializable, Snapshottable, WorldObje
     return Poly.of(vertices);
   }
 
+  private void invalidateState() {
+    stateValid = false;
+    voxelPoly = null;
+  }
+
   @Override
   public void reset() {
+    unregisterContacts();
     assemble();
+    invalidateState();
     areaRatioEnergy = 0d;
     applyForce(0d);
     controlEnergy = 0d;
@@ -650,6 +739,16 @@ public class Voxel implements Actionable, Serializable, Snapshottable, WorldObje
     });
   }
 
+  private void unregisterContacts() {
+    if (contactIndex != null) {
+      for (Body body : vertexBodies) {
+        contactIndex.unregister(body);
+      }
+      contactIndex = null;
+      contactIds = null;
+    }
+  }
+
   public void setOwner(Robot robot) {
     Filter filter = new RobotFilter();
     for (Body vertexBody : vertexBodies) {
@@ -681,6 +780,52 @@ public class Voxel implements Actionable, Serializable, Snapshottable, WorldObje
     for (Body body : vertexBodies) {
       body.translate(v);
     }
+    invalidateState();
+  }
+
+  /**
+   * Computes the vertexes, the area, the angle, the center, and the linear velocity of this voxel, if they are not
+   * already valid. Once this voxel has been added to a world, they are valid until the end of the next step of the
+   * world or until this voxel is moved or reset.
+   */
+  private void updateState() {
+    if (stateValid) {
+      return;
+    }
+    if (vertexes == null) {
+      vertexes = new double[8];
+    }
+    //vertexes
+    for (int i = 0; i < 4; i++) {
+      Transform t = vertexBodies[i].getTransform();
+      Vector2 v = ((Rectangle) vertexBodies[i].getFixture(0).getShape()).getVertices()[3 - i];
+      vertexes[2 * i] = t.getTransformedX(v);
+      vertexes[2 * i + 1] = t.getTransformedY(v);
+    }
+    //area, as in Poly.area()
+    double a = 0d;
+    for (int i = 0; i < 4; i++) {
+      a = a + vertexes[2 * i] * (vertexes[2 * ((i + 1) % 4) + 1] - vertexes[2 * ((i + 3) % 4) + 1]);
+    }
+    area = 0.5d * Math.abs(a);
+    //angle
+    Vector2 upSide = vertexBodies[1].getWorldCenter().copy().subtract(vertexBodies[0].getWorldCenter());
+    Vector2 downSide = vertexBodies[2].getWorldCenter().copy().subtract(vertexBodies[3].getWorldCenter());
+    angle = (upSide.getDirection() + downSide.getDirection()) / 2d;
+    //center and velocity
+    double xc = 0d;
+    double yc = 0d;
+    double vx = 0d;
+    double vy = 0d;
+    for (Body vertex : vertexBodies) {
+      xc = xc + vertex.getWorldCenter().x;
+      yc = yc + vertex.getWorldCenter().y;
+      vx = vx + vertex.getLinearVelocity().x;
+      vy = vy + vertex.getLinearVelocity().y;
+    }
+    center = Point2.of(xc / (double) vertexBodies.length, yc / (double) vertexBodies.length);
+    linearVelocity = Point2.of(vx / (double) vertexBodies.length, vy / (double) vertexBodies.length);
+    stateValid = world != null;
   }
 
 }
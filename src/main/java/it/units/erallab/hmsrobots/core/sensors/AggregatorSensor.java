@@ -20,29 +20,125 @@ package it.units.erallab.hmsrobots.core.sensors;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import it.units.erallab.hmsrobots.util.DoubleRange;
 
+import java.util.Arrays;
 import java.util.TreeMap;
 
 /**
+ * A sensor aggregating the readings of another sensor over a time window of a given length. The readings in the
+ * window are kept in a ring buffer of primitive arrays, and subclasses can update their aggregates incrementally by
+ * overriding {@link #added(long)}, {@link #removing(long)}, and {@link #cleared()}. Readings are identified by a
+ * progressive number: the oldest one in the window is {@link #oldest()}, the newest one is {@link #newest()}.
+ *
  * @author "Eric Medvet" on 2021/08/13 for 2dhmsr
  */
 public abstract class AggregatorSensor extends CompositeSensor {
   @JsonProperty
   protected final double interval;
-  protected final TreeMap<Double, double[]> readings;
+  //window, as a ring buffer: reading n is at position n % capacity
+  private double[] times;
+  private double[] values;
+  private int dimension;
+  private long oldest;
+  private long next;
 
   public AggregatorSensor(DoubleRange[] domains, Sensor sensor, double interval) {
     super(domains, sensor);
     this.interval = interval;
-    readings = new TreeMap<>();
+    times = new double[16];
     reset();
   }
 
   protected abstract double[] aggregate(double t);
 
+  /**
+   * Called after the reading {@code n} has been added to the window as the newest one.
+   */
+  protected void added(long n) {
+  }
+
+  /**
+   * Called when the window is emptied. Note that it is also called while the superclass is being constructed.
+   */
+  protected void cleared() {
+  }
+
+  /**
+   * Called before the reading {@code n} is removed from the window as the oldest one.
+   */
+  protected void removing(long n) {
+  }
+
+  protected int dimension() {
+    return dimension;
+  }
+
+  protected long newest() {
+    return next - 1;
+  }
+
+  protected long oldest() {
+    return oldest;
+  }
+
+  protected double reading(long n, int i) {
+    return values[(int) (n % times.length) * dimension + i];
+  }
+
+  protected int size() {
+    return (int) (next - oldest);
+  }
+
+  protected double time(long n) {
+    return times[(int) (n % times.length)];
+  }
+
+  /**
+   * Returns the readings in the window, by time, as a new map built on each invocation.
+   *
+   * @deprecated the readings are no more kept in a map: use {@link #oldest()}, {@link #newest()}, {@link #time(long)},
+   * and {@link #reading(long, int)} instead
+   */
+  @Deprecated
+  protected TreeMap<Double, double[]> readings() {
+    TreeMap<Double, double[]> readings = new TreeMap<>();
+    for (long n = oldest; n < next; n++) {
+      int position = (int) (n % times.length);
+      readings.put(times[position], Arrays.copyOfRange(values, position * dimension, (position + 1) * dimension));
+    }
+    return readings;
+  }
+
+  private void add(double t, double[] currentReadings) {
+    if (values == null || dimension != currentReadings.length) {
+      dimension = currentReadings.length;
+      values = new double[times.length * dimension];
+    }
+    if (size() == times.length) {
+      //grow, keeping each reading n at position n % capacity
+      double[] newTimes = new double[times.length * 2];
+      double[] newValues = new double[newTimes.length * dimension];
+      for (long n = oldest; n < next; n++) {
+        int position = (int) (n % times.length);
+        int newPosition = (int) (n % newTimes.length);
+        newTimes[newPosition] = times[position];
+        System.arraycopy(values, position * dimension, newValues, newPosition * dimension, dimension);
+      }
+      times = newTimes;
+      values = newValues;
+    }
+    int position = (int) (next % times.length);
+    times[position] = t;
+    System.arraycopy(currentReadings, 0, values, position * dimension, dimension);
+    next = next + 1;
+    added(next - 1);
+  }
+
   @Override
   public void reset() {
     super.reset();
-    readings.clear();
+    oldest = 0;
+    next = 0;
+    cleared();
   }
 
   @Override
@@ -56,11 +152,23 @@ public abstract class AggregatorSensor extends CompositeSensor {
   @Override
   protected double[] sense(double t) {
     double[] currentReadings = sensor.getReadings();
-    readings.put(t, currentReadings);
-    double t0 = readings.firstKey();
-    while (t0 < (t - interval)) {
-      readings.remove(t0);
-      t0 = readings.firstKey();
+    if (size() > 0 && dimension != currentReadings.length) {
+      //readings of different dimensions cannot be aggregated: empty the window
+      oldest = next;
+      cleared();
+    } else if (size() > 0 && time(newest()) == t) {
+      //replace the reading taken at the same time and rebuild the aggregates
+      long n = newest();
+      next = next - 1;
+      cleared();
+      for (long m = oldest; m < n; m++) {
+        added(m);
+      }
+    }
+    add(t, currentReadings);
+    while (size() > 1 && time(oldest) < (t - interval)) {
+      removing(oldest);
+      oldest = oldest + 1;
     }
     return aggregate(t);
   }
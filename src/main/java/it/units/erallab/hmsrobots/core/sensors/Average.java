@@ -19,8 +19,14 @@ package it.units.erallab.hmsrobots.core.sensors;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.util.Arrays;
+
 public class Average extends AggregatorSensor {
 
+  //running sums of the readings in the window
+  private double[] sums;
+  private int nOfRemovals;
+
   @JsonCreator
   public Average(
       @JsonProperty("sensor") Sensor sensor,
@@ -30,18 +36,47 @@ public class Average extends AggregatorSensor {
     reset();
   }
 
+  @Override
+  protected void added(long n) {
+    if (sums == null) {
+      sums = new double[dimension()];
+    }
+    for (int i = 0; i < sums.length; i++) {
+      sums[i] = sums[i] + reading(n, i);
+    }
+  }
+
   @Override
   protected double[] aggregate(double t) {
-    double[] sums = new double[readings.firstEntry().getValue().length];
-    for (double[] pastReadings : readings.values()) {
-      for (int i = 0; i < sums.length; i++) {
-        sums[i] = sums[i] + pastReadings[i];
-      }
+    double[] averages = new double[sums.length];
+    for (int i = 0; i < averages.length; i++) {
+      averages[i] = sums[i] / (double) size();
     }
+    return averages;
+  }
+
+  @Override
+  protected void cleared() {
+    sums = null;
+    nOfRemovals = 0;
+  }
+
+  @Override
+  protected void removing(long n) {
     for (int i = 0; i < sums.length; i++) {
-      sums[i] = sums[i] / (double) readings.size();
+      sums[i] = sums[i] - reading(n, i);
+    }
+    nOfRemovals = nOfRemovals + 1;
+    //recompute the sums once the window has been renewed, to prevent the accumulation of rounding errors
+    if (nOfRemovals >= size() - 1) {
+      Arrays.fill(sums, 0d);
+      for (long m = n + 1; m <= newest(); m++) {
+        for (int i = 0; i < sums.length; i++) {
+          sums[i] = sums[i] + reading(m, i);
+        }
+      }
+      nOfRemovals = 0;
     }
-    return sums;
   }
 
 }
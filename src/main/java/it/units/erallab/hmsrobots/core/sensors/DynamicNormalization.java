@@ -20,11 +20,15 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import it.units.erallab.hmsrobots.util.DoubleRange;
 
-import java.util.Arrays;
+import java.io.Serializable;
 import java.util.Collections;
 
 public class DynamicNormalization extends AggregatorSensor {
 
+  //for each dimension, the readings which are, or may become, the min and the max of the window
+  private MonotonicDeque[] mins;
+  private MonotonicDeque[] maxs;
+
   @JsonCreator
   public DynamicNormalization(
       @JsonProperty("sensor") Sensor sensor,
@@ -38,24 +42,95 @@ public class DynamicNormalization extends AggregatorSensor {
     reset();
   }
 
+  //a deque of reading numbers whose values, in a given dimension, are monotonic, from the oldest to the newest
+  private static final class MonotonicDeque implements Serializable {
+    private long[] items = new long[16];
+    private int head;
+    private int size;
+
+    private long first() {
+      return items[head];
+    }
+
+    private long last() {
+      return items[(head + size - 1) % items.length];
+    }
+
+    private void addLast(long n) {
+      if (size == items.length) {
+        long[] newItems = new long[items.length * 2];
+        for (int j = 0; j < size; j++) {
+          newItems[j] = items[(head + j) % items.length];
+        }
+        items = newItems;
+        head = 0;
+      }
+      items[(head + size) % items.length] = n;
+      size = size + 1;
+    }
+
+    private void removeFirst() {
+      head = (head + 1) % items.length;
+      size = size - 1;
+    }
+
+    private void removeLast() {
+      size = size - 1;
+    }
+  }
+
   @Override
-  protected double[] aggregate(double t) {
-    double[] currentReadings = sensor.getReadings();
-    double[] mins = new double[currentReadings.length];
-    double[] maxs = new double[currentReadings.length];
-    Arrays.fill(mins, Double.POSITIVE_INFINITY);
-    Arrays.fill(maxs, Double.NEGATIVE_INFINITY);
-    for (double[] pastReadings : readings.values()) {
-      for (int i = 0; i < currentReadings.length; i++) {
-        mins[i] = Math.min(mins[i], pastReadings[i]);
-        maxs[i] = Math.max(maxs[i], pastReadings[i]);
+  protected void added(long n) {
+    if (mins == null) {
+      mins = new MonotonicDeque[dimension()];
+      maxs = new MonotonicDeque[dimension()];
+      for (int i = 0; i < mins.length; i++) {
+        mins[i] = new MonotonicDeque();
+        maxs[i] = new MonotonicDeque();
       }
     }
+    for (int i = 0; i < mins.length; i++) {
+      double value = reading(n, i);
+      //drop the older readings which cannot be the min (or max) while this one is in the window
+      while (mins[i].size > 0 && Double.compare(reading(mins[i].last(), i), value) >= 0) {
+        mins[i].removeLast();
+      }
+      mins[i].addLast(n);
+      while (maxs[i].size > 0 && Double.compare(reading(maxs[i].last(), i), value) <= 0) {
+        maxs[i].removeLast();
+      }
+      maxs[i].addLast(n);
+    }
+  }
+
+  @Override
+  protected double[] aggregate(double t) {
+    double[] currentReadings = sensor.getReadings();
     double[] values = new double[currentReadings.length];
     for (int i = 0; i < values.length; i++) {
-      values[i] = Math.min(Math.max((currentReadings[i] - mins[i]) / (maxs[i] - mins[i]), 0d), 1d);
+      double min = reading(mins[i].first(), i);
+      double max = reading(maxs[i].first(), i);
+      values[i] = Math.min(Math.max((currentReadings[i] - min) / (max - min), 0d), 1d);
     }
     return values;
   }
 
+  @Override
+  protected void cleared() {
+    mins = null;
+    maxs = null;
+  }
+
+  @Override
+  protected void removing(long n) {
+    for (int i = 0; i < mins.length; i++) {
+      if (mins[i].first() == n) {
+        mins[i].removeFirst();
+      }
+      if (maxs[i].first() == n) {
+        maxs[i].removeFirst();
+      }
+    }
+  }
+
 }
@@ -26,19 +26,16 @@ import it.units.erallab.hmsrobots.util.DoubleRange;
 import org.apache.commons.lang3.ArrayUtils;
 import org.dyn4j.dynamics.Body;
 import org.dyn4j.dynamics.BodyFixture;
-import org.dyn4j.geometry.Ray;
-import org.dyn4j.geometry.Vector2;
 import org.dyn4j.world.DetectFilter;
-import org.dyn4j.world.result.RaycastResult;
+import org.dyn4j.world.World;
 
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.List;
 import java.util.Map;
 import java.util.stream.DoubleStream;
 
 public class Lidar extends AbstractSensor {
-  private final static DetectFilter<Body, BodyFixture> FILTER = new DetectFilter<>(
+  final static DetectFilter<Body, BodyFixture> FILTER = new DetectFilter<>(
       true,
       true,
       f -> {
@@ -52,6 +49,10 @@ public class Lidar extends AbstractSensor {
   @JsonProperty
   private final double[] rayDirections;
 
+  private transient World<Body> world;
+  private transient LidarEngine engine;
+  private transient double[] absoluteDirections;
+
   @JsonCreator
   public Lidar(
       @JsonProperty("rayLength") double rayLength,
@@ -109,12 +110,19 @@ public class Lidar extends AbstractSensor {
 
   @Override
   public double[] sense(double t) {
-    return Arrays.stream(rayDirections).map(rayDirection -> {
-      Point2 center = voxel.center();
-      Ray ray = new Ray(new Vector2(center.x(), center.y()), rayDirection + voxel.getAngle());
-      List<RaycastResult<Body, BodyFixture>> results = voxel.getWorld().raycast(ray, rayLength, FILTER);
-      return results.stream().mapToDouble(r -> r.getRaycast().getDistance()).min().orElse(rayLength);
-    }).toArray();
+    if (engine == null || world != voxel.getWorld()) {
+      world = voxel.getWorld();
+      engine = LidarEngine.of(world, FILTER);
+      absoluteDirections = new double[rayDirections.length];
+    }
+    Point2 center = voxel.center();
+    double angle = voxel.getAngle();
+    for (int i = 0; i < rayDirections.length; i++) {
+      absoluteDirections[i] = rayDirections[i] + angle;
+    }
+    double[] distances = new double[rayDirections.length];
+    engine.cast(center.x(), center.y(), absoluteDirections, rayLength, distances);
+    return distances;
   }
 
   @Override
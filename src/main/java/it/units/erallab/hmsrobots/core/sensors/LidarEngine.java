@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.core.sensors;
+
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.dynamics.BodyFixture;
+import org.dyn4j.dynamics.TimeStep;
+import org.dyn4j.geometry.Polygon;
+import org.dyn4j.geometry.Ray;
+import org.dyn4j.geometry.Transform;
+import org.dyn4j.geometry.Vector2;
+import org.dyn4j.world.DetectFilter;
+import org.dyn4j.world.PhysicsWorld;
+import org.dyn4j.world.World;
+import org.dyn4j.world.listener.StepListener;
+import org.dyn4j.world.listener.StepListenerAdapter;
+import org.dyn4j.world.result.RaycastResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Casts rays against the bodies of a world that are visible to a {@link Lidar}, without going through the
+ * broad-phase and the narrow-phase of the world. Visible polygonal fixtures are decomposed in their edges and only the
+ * edges facing the ray are considered, hence a ray starting inside a body does not hit it, as in
+ * {@link World#raycast(Ray, double, DetectFilter)}. Edges of static bodies (e.g., the {@link
+ * it.units.erallab.hmsrobots.core.objects.Ground}) are indexed in buckets along the x-axis, which
+ * are visited in the order the ray crosses them, stopping as soon as no closer hit is possible. Edges of the other
+ * bodies are computed once per step of the world. Fixtures with non-polygonal shapes are raycasted through the world.
+ * Distances are the same as those computed by the world up to the numerical tolerance of its raycast detector.
+ * <p>
+ * Bodies are classified, and the static edges are indexed, again only when bodies have been added to or removed from
+ * the world, which is detected by the number of bodies and the last added body. Static bodies are assumed not to move
+ * and bodies are assumed not to change their fixtures or their mass type: {@link #invalidate()} should be invoked
+ * otherwise.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class LidarEngine extends StepListenerAdapter<Body> {
+
+  private final World<Body> world;
+  private final DetectFilter<Body, BodyFixture> filter;
+  //static edges, as origin and extent, indexed by buckets
+  private final Edges staticEdges;
+  private int[] bucketStarts;
+  private int[] bucketEdges;
+  private double bucketsMinX;
+  private double bucketWidth;
+  //the bodies of the world upon which the classification is based
+  private int nOfBodies;
+  private Body lastBody;
+  private final List<Body> dynamicBodies;
+  private final List<Body> otherBodies;
+  //dynamic edges, rebuilt after each step
+  private final Edges dynamicEdges;
+  private boolean dynamicValid;
+
+  private LidarEngine(World<Body> world, DetectFilter<Body, BodyFixture> filter) {
+    this.world = world;
+    this.filter = filter;
+    staticEdges = new Edges();
+    dynamicEdges = new Edges();
+    dynamicBodies = new ArrayList<>();
+    otherBodies = new ArrayList<>();
+    nOfBodies = -1;
+  }
+
+  private static final class Edges {
+    private double[] axs = new double[16];
+    private double[] ays = new double[16];
+    private double[] exs = new double[16];
+    private double[] eys = new double[16];
+    private int n;
+
+    private void add(double ax, double ay, double bx, double by) {
+      if (n == axs.length) {
+        axs = Arrays.copyOf(axs, n * 2);
+        ays = Arrays.copyOf(ays, n * 2);
+        exs = Arrays.copyOf(exs, n * 2);
+        eys = Arrays.copyOf(eys, n * 2);
+      }
+      axs[n] = ax;
+      ays[n] = ay;
+      exs[n] = bx - ax;
+      eys[n] = by - ay;
+      n = n + 1;
+    }
+
+    private void addAll(Body body, BodyFixture fixture) {
+      Transform t = body.getTransform();
+      Vector2[] vertices = ((Polygon) fixture.getShape()).getVertices();
+      for (int i = 0; i < vertices.length; i++) {
+        Vector2 a = vertices[i];
+        Vector2 b = vertices[(i + 1) % vertices.length];
+        add(t.getTransformedX(a), t.getTransformedY(a), t.getTransformedX(b), t.getTransformedY(b));
+      }
+    }
+
+    private double minX(int i) {
+      return Math.min(axs[i], axs[i] + exs[i]);
+    }
+
+    private double maxX(int i) {
+      return Math.max(axs[i], axs[i] + exs[i]);
+    }
+
+    //returns the distance along the ray to the edge, if it is hit on its front side, or +inf otherwise
+    private double hit(int i, double ox, double oy, double dx, double dy) {
+      double denominator = dx * eys[i] - dy * exs[i];
+      if (denominator >= 0) {
+        return Double.POSITIVE_INFINITY;
+      }
+      double aox = axs[i] - ox;
+      double aoy = ays[i] - oy;
+      double t = (aox * eys[i] - aoy * exs[i]) / denominator;
+      double s = (aox * dy - aoy * dx) / denominator;
+      if (t < 0 || s < 0 || s > 1) {
+        return Double.POSITIVE_INFINITY;
+      }
+      return t;
+    }
+  }
+
+  /**
+   * Returns the engine of the provided world for the provided filter, creating and attaching it to the world if the
+   * world does not have one yet.
+   */
+  public static LidarEngine of(World<Body> world, DetectFilter<Body, BodyFixture> filter) {
+    for (StepListener<Body> listener : world.getStepListeners()) {
+      if (listener instanceof LidarEngine engine && engine.filter == filter) {
+        return engine;
+      }
+    }
+    LidarEngine engine = new LidarEngine(world, filter);
+    world.addStepListener(engine);
+    return engine;
+  }
+
+  /**
+   * Casts one ray for each of the provided directions from the provided origin and writes in {@code distances} the
+   * distance of the closest hit, or {@code rayLength} if there is no hit within {@code rayLength}.
+   */
+  public void cast(double ox, double oy, double[] directions, double rayLength, double[] distances) {
+    update();
+    for (int i = 0; i < directions.length; i++) {
+      double dx = Math.cos(directions[i]);
+      double dy = Math.sin(directions[i]);
+      double closest = rayLength;
+      for (int j = 0; j < dynamicEdges.n; j++) {
+        closest = Math.min(closest, dynamicEdges.hit(j, ox, oy, dx, dy));
+      }
+      if (!otherBodies.isEmpty()) {
+        Ray ray = new Ray(new Vector2(ox, oy), directions[i]);
+        for (Body body : otherBodies) {
+          RaycastResult<Body, BodyFixture> result = world.raycastClosest(ray, closest, body, filter);
+          if (result != null) {
+            closest = Math.min(closest, result.getRaycast().getDistance());
+          }
+        }
+      }
+      distances[i] = castStatic(ox, oy, dx, dy, closest);
+    }
+  }
+
+  private double castStatic(double ox, double oy, double dx, double dy, double closest) {
+    if (bucketStarts.length < 2) {
+      return closest;
+    }
+    int nOfBuckets = bucketStarts.length - 1;
+    double endX = ox + dx * closest;
+    int first = bucket(ox);
+    int last = bucket(endX);
+    int step = first <= last ? 1 : -1;
+    for (int b = first; ; b = b + step) {
+      if (b >= 0 && b < nOfBuckets) {
+        //stop if this bucket is farther than the closest hit
+        if (b != first && dx != 0) {
+          double boundaryX = bucketsMinX + (step > 0 ? b : b + 1) * bucketWidth;
+          if ((boundaryX - ox) / dx >= closest) {
+            break;
+          }
+        }
+        for (int k = bucketStarts[b]; k < bucketStarts[b + 1]; k++) {
+          closest = Math.min(closest, staticEdges.hit(bucketEdges[k], ox, oy, dx, dy));
+        }
+      }
+      if (b == last) {
+        break;
+      }
+    }
+    return closest;
+  }
+
+  private int bucket(double x) {
+    int nOfBuckets = bucketStarts.length - 1;
+    double b = Math.floor((x - bucketsMinX) / bucketWidth);
+    return (int) Math.max(-1, Math.min(nOfBuckets, b));
+  }
+
+  private void build() {
+    nOfBodies = world.getBodyCount();
+    lastBody = nOfBodies > 0 ? world.getBody(nOfBodies - 1) : null;
+    dynamicBodies.clear();
+    otherBodies.clear();
+    staticEdges.n = 0;
+    for (Body body : world.getBodies()) {
+      boolean polygonal = false;
+      for (BodyFixture fixture : body.getFixtures()) {
+        if (!filter.isAllowed(body, fixture)) {
+          continue;
+        }
+        if (!(fixture.getShape() instanceof Polygon)) {
+          if (!otherBodies.contains(body)) {
+            otherBodies.add(body);
+          }
+        } else if (body.isStatic()) {
+          staticEdges.addAll(body, fixture);
+        } else {
+          polygonal = true;
+        }
+      }
+      if (polygonal) {
+        dynamicBodies.add(body);
+      }
+    }
+    dynamicValid = false;
+    if (staticEdges.n == 0) {
+      bucketStarts = new int[1];
+      bucketEdges = new int[0];
+      return;
+    }
+    double minX = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double widths = 0d;
+    for (int i = 0; i < staticEdges.n; i++) {
+      minX = Math.min(minX, staticEdges.minX(i));
+      maxX = Math.max(maxX, staticEdges.maxX(i));
+      widths = widths + staticEdges.maxX(i) - staticEdges.minX(i);
+    }
+    bucketsMinX = minX;
+    bucketWidth = Math.max(widths / staticEdges.n, (maxX - minX) / (1 << 16));
+    if (bucketWidth <= 0) {
+      bucketWidth = 1d;
+    }
+    int nOfBuckets = (int) Math.floor((maxX - minX) / bucketWidth) + 1;
+    //count, then fill, the edges of each bucket
+    bucketStarts = new int[nOfBuckets + 1];
+    for (int i = 0; i < staticEdges.n; i++) {
+      for (int b = bucket(staticEdges.minX(i)); b <= bucket(staticEdges.maxX(i)); b++) {
+        bucketStarts[b + 1] = bucketStarts[b + 1] + 1;
+      }
+    }
+    for (int b = 0; b < nOfBuckets; b++) {
+      bucketStarts[b + 1] = bucketStarts[b + 1] + bucketStarts[b];
+    }
+    bucketEdges = new int[bucketStarts[nOfBuckets]];
+    int[] fills = Arrays.copyOf(bucketStarts, nOfBuckets);
+    for (int i = 0; i < staticEdges.n; i++) {
+      for (int b = bucket(staticEdges.minX(i)); b <= bucket(staticEdges.maxX(i)); b++) {
+        bucketEdges[fills[b]] = i;
+        fills[b] = fills[b] + 1;
+      }
+    }
+  }
+
+  @Override
+  public void end(TimeStep step, PhysicsWorld<Body, ?> world) {
+    dynamicValid = false;
+  }
+
+  /**
+   * Makes the engine classify the bodies and index the static edges again before the next cast. To be invoked after
+   * a static body has been moved, or after a body has changed its fixtures or its mass type.
+   */
+  public void invalidate() {
+    nOfBodies = -1;
+  }
+
+  private void update() {
+    //bodies are appended to the world, hence the last body changes if bodies have been removed and others added
+    int n = world.getBodyCount();
+    if (n != nOfBodies || (n > 0 && world.getBody(n - 1) != lastBody)) {
+      build();
+    }
+    if (dynamicValid) {
+      return;
+    }
+    dynamicEdges.n = 0;
+    for (Body body : dynamicBodies) {
+      for (BodyFixture fixture : body.getFixtures()) {
+        if (filter.isAllowed(body, fixture) && fixture.getShape() instanceof Polygon) {
+          dynamicEdges.addAll(body, fixture);
+        }
+      }
+    }
+    dynamicValid = true;
+  }
+
+}
@@ -16,12 +16,8 @@
  */
 package it.units.erallab.hmsrobots.core.sensors;
 
-import it.units.erallab.hmsrobots.core.objects.Ground;
 import it.units.erallab.hmsrobots.core.objects.Voxel;
 import it.units.erallab.hmsrobots.util.DoubleRange;
-import org.dyn4j.dynamics.Body;
-
-import java.util.List;
 
 public class Touch extends AbstractSensor {
   private final static DoubleRange[] DOMAINS = new DoubleRange[]{
@@ -33,30 +29,11 @@ public class Touch extends AbstractSensor {
   }
 
   public static boolean isTouching(Voxel voxel) {
-    for (Body vertexBody : voxel.getVertexBodies()) {
-      List<Body> inContactBodies = voxel.getWorld().getInContactBodies(vertexBody, false);
-      for (Body inContactBody : inContactBodies) {
-        Object userData = inContactBody.getUserData();
-        if (userData == null) {
-          return true;
-        } else if (userData != vertexBody.getUserData()) {
-          return true;
-        }
-      }
-    }
-    return false;
+    return voxel.isTouching();
   }
 
   public static boolean isTouchingGround(Voxel voxel) {
-    for (Body vertexBody : voxel.getVertexBodies()) {
-      List<Body> inContactBodies = voxel.getWorld().getInContactBodies(vertexBody, false);
-      for (Body inContactBody : inContactBodies) {
-        if ((inContactBody.getUserData() != null) && (inContactBody.getUserData().equals(Ground.class))) {
-          return true;
-        }
-      }
-    }
-    return false;
+    return voxel.isTouchingGround();
   }
 
   @Override
@@ -36,15 +36,13 @@ public class Trend extends AggregatorSensor {
 
   @Override
   protected double[] aggregate(double t) {
-    double localInterval = readings.lastKey() - readings.firstKey();
+    double localInterval = time(newest()) - time(oldest());
     if (localInterval == 0) {
       return new double[domains.length];
     }
-    double[] firsts = readings.firstEntry().getValue();
-    double[] lasts = readings.lastEntry().getValue();
-    double[] changes = new double[firsts.length];
+    double[] changes = new double[dimension()];
     for (int i = 0; i < changes.length; i++) {
-      changes[i] = (lasts[i] - firsts[i]) / (localInterval);
+      changes[i] = (reading(newest(), i) - reading(oldest(), i)) / (localInterval);
     }
     return changes;
   }
@@ -25,6 +25,7 @@ import org.dyn4j.dynamics.Body;
 import org.dyn4j.dynamics.Settings;
 import org.dyn4j.world.World;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -38,27 +39,63 @@ public abstract class AbstractTask<T, R> implements Task<T, R> {
     this.settings = settings;
   }
 
+  /**
+   * The objects of a world, resolved once per episode in those to be actioned and those to be snapshotted at each
+   * step, so that stepping the world does not require to re-filter the objects at every tick.
+   */
+  public static final class StepPlan {
+    private final Actionable[] actionables;
+    private final Snapshottable[] snapshottables;
+
+    private StepPlan(List<? extends WorldObject> objects) {
+      List<Actionable> localActionables = new ArrayList<>(objects.size());
+      List<Snapshottable> localSnapshottables = new ArrayList<>(objects.size());
+      for (WorldObject object : objects) {
+        if (object instanceof Actionable actionable) {
+          localActionables.add(actionable);
+        }
+        if (object instanceof Snapshottable snapshottable) {
+          localSnapshottables.add(snapshottable);
+        }
+      }
+      actionables = localActionables.toArray(Actionable[]::new);
+      snapshottables = localSnapshottables.toArray(Snapshottable[]::new);
+    }
+
+    public static StepPlan of(List<? extends WorldObject> objects) {
+      return new StepPlan(objects);
+    }
+  }
+
   protected static double updateWorld(
       final double t,
       final double dT,
       final World<Body> world,
       final List<WorldObject> objects,
       final SnapshotListener listener
+  ) {
+    return updateWorld(t, dT, world, StepPlan.of(objects), listener);
+  }
+
+  protected static double updateWorld(
+      final double t,
+      final double dT,
+      final World<Body> world,
+      final StepPlan plan,
+      final SnapshotListener listener
   ) {
     double newT = t + dT;
     world.step(1);
-    objects.stream().filter(o -> o instanceof Actionable).forEach(o -> ((Actionable) o).act(newT));
+    for (Actionable actionable : plan.actionables) {
+      actionable.act(newT);
+    }
     //possibly output snapshot
     if (listener != null) {
-      listener.listen(
-          newT,
-          Snapshot.world(
-              objects.stream()
-                  .filter(o -> o instanceof Snapshottable)
-                  .map(o -> ((Snapshottable) o).getSnapshot())
-                  .toList()
-          )
-      );
+      List<Snapshot> snapshots = new ArrayList<>(plan.snapshottables.length);
+      for (Snapshottable snapshottable : plan.snapshottables) {
+        snapshots.add(snapshottable.getSnapshot());
+      }
+      listener.listen(newT, Snapshot.world(snapshots));
     }
     return newT;
   }
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.tasks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Evaluates many solutions against a {@link Task} in parallel, one episode per solution. The underlying executor is
+ * kept alive across invocations of {@link #evaluate(Task, List, Consumer)}, so that the same threads can be reused
+ * across, e.g., the generations of an evolutionary run. Solutions in the same batch are evaluated concurrently and
+ * hence must not share mutable state (e.g., the same {@link it.units.erallab.hmsrobots.core.objects.Robot} instance).
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class BatchEvaluator implements AutoCloseable {
+
+  private static final Logger L = Logger.getLogger(BatchEvaluator.class.getName());
+
+  private final ExecutorService executor;
+  private final boolean ownedExecutor;
+
+  public BatchEvaluator(ExecutorService executor) {
+    this(executor, false);
+  }
+
+  public BatchEvaluator(int parallelism) {
+    this(Executors.newWorkStealingPool(parallelism), true);
+  }
+
+  public BatchEvaluator() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  private BatchEvaluator(ExecutorService executor, boolean ownedExecutor) {
+    this.executor = executor;
+    this.ownedExecutor = ownedExecutor;
+  }
+
+  public record Completion<S, R>(int index, S solution, R result, double elapsedTime) {}
+
+  @Override
+  public void close() {
+    if (ownedExecutor) {
+      executor.shutdown();
+    }
+  }
+
+  public <S, R> List<R> evaluate(Task<S, R> task, List<S> solutions) {
+    return evaluate(task, solutions, null);
+  }
+
+  /**
+   * Evaluates all the provided solutions and returns the results in the same order of the solutions. If not null, the
+   * listener is notified as soon as each episode ends, possibly concurrently from different threads.
+   */
+  public <S, R> List<R> evaluate(Task<S, R> task, List<S> solutions, Consumer<Completion<S, R>> listener) {
+    List<CompletableFuture<R>> futures = new ArrayList<>(solutions.size());
+    for (int i = 0; i < solutions.size(); i++) {
+      final int index = i;
+      final S solution = solutions.get(i);
+      futures.add(CompletableFuture.supplyAsync(() -> {
+        long startNanos = System.nanoTime();
+        R result = task.apply(solution);
+        if (listener != null) {
+          listener.accept(new Completion<>(index, solution, result, (System.nanoTime() - startNanos) / 1e9d));
+        }
+        return result;
+      }, executor));
+    }
+    List<R> results = new ArrayList<>(futures.size());
+    for (int i = 0; i < futures.size(); i++) {
+      try {
+        results.add(futures.get(i).get());
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        futures.forEach(f -> f.cancel(true));
+        throw new IllegalStateException("Interrupted while waiting for episodes", ex);
+      } catch (ExecutionException ex) {
+        futures.forEach(f -> f.cancel(true));
+        L.severe(String.format("Cannot evaluate solution %d due to %s", i, ex.getCause()));
+        if (ex.getCause() instanceof RuntimeException runtimeException) {
+          throw runtimeException;
+        }
+        throw new IllegalStateException(String.format("Cannot evaluate solution %d", i), ex.getCause());
+      }
+    }
+    return results;
+  }
+
+}
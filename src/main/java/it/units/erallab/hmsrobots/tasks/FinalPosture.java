@@ -54,10 +54,11 @@ public class FinalPosture extends AbstractTask<Robot, Grid<Boolean>> {
     //add robot to world
     robot.addTo(world);
     worldObjects.add(robot);
+    AbstractTask.StepPlan stepPlan = AbstractTask.StepPlan.of(worldObjects);
     //run
     double t = 0d;
     while (t < finalT) {
-      t = AbstractTask.updateWorld(t, settings.getStepFrequency(), world, worldObjects, listener);
+      t = AbstractTask.updateWorld(t, settings.getStepFrequency(), world, stepPlan, listener);
     }
     //get final posture
     return BehaviorUtils.computePosture(
@@ -70,6 +70,7 @@ public class Balancing extends AbstractTask<Robot, BalanceOutcome> {
     //add robot to world
     robot.addTo(world);
     worldObjects.add(robot);
+    AbstractTask.StepPlan stepPlan = AbstractTask.StepPlan.of(worldObjects);
     //run
     Map<Double, Outcome.Observation> observations = new HashMap<>((int) Math.ceil(finalT / settings.getStepFrequency()));
     double t = 0d;
@@ -80,7 +81,7 @@ public class Balancing extends AbstractTask<Robot, BalanceOutcome> {
         stopped = true;
         break;
       }
-      t = AbstractTask.updateWorld(t, settings.getStepFrequency(), world, worldObjects, listener);
+      t = AbstractTask.updateWorld(t, settings.getStepFrequency(), world, stepPlan, listener);
       observations.put(t, new Outcome.Observation(
           Grid.create(robot.getVoxels(), v -> v == null ? null : v.getVoxelPoly()),
           platformHeight,
@@ -105,18 +106,9 @@ public class Balancing extends AbstractTask<Robot, BalanceOutcome> {
   }
 
   public boolean stopCondition(Robot robot) {
-    for (Grid.Entry<Voxel> entry : robot.getVoxels()) {
-      if (entry.value() == null) {
-        continue;
-      }
-      Voxel voxel = entry.value();
-      for (Body vertexBody : voxel.getVertexBodies()) {
-        List<Body> inContactBodies = voxel.getWorld().getInContactBodies(vertexBody, false);
-        for (Body inContactBody : inContactBodies) {
-          if ((inContactBody.getUserData() != null) && (inContactBody.getUserData().equals(Ground.class))) {
-            return true;
-          }
-        }
+    for (Voxel voxel : robot.getVoxels().values()) {
+      if (voxel != null && voxel.isTouchingGround()) {
+        return true;
       }
     }
     return false;
@@ -27,7 +27,6 @@ import org.dyn4j.dynamics.Settings;
 import org.dyn4j.geometry.Vector2;
 import org.dyn4j.world.World;
 
-import java.util.Objects;
 import java.util.function.UnaryOperator;
 
 /**
@@ -37,12 +36,14 @@ public abstract class DevoLocomotion extends AbstractTask<UnaryOperator<Robot>,
 
   protected final double maxT;
   protected final double[][] groundProfile;
+  protected final Ground.Geometry groundGeometry;
   protected final double initialPlacement;
 
   public DevoLocomotion(double maxT, double[][] groundProfile, double initialPlacement, Settings settings) {
     super(settings);
     this.maxT = maxT;
     this.groundProfile = groundProfile;
+    groundGeometry = new Ground.Geometry(groundProfile[0], groundProfile[1]);
     this.initialPlacement = initialPlacement;
   }
 
@@ -55,10 +56,7 @@ public abstract class DevoLocomotion extends AbstractTask<UnaryOperator<Robot>,
     //position robot: translate on x
     robot.translate(new Vector2(newMinX - robot.boundingBox().min().x(), 0));
     //translate on y
-    double minYGap = robot.getVoxels().values().stream()
-        .filter(Objects::nonNull)
-        .mapToDouble(v -> v.boundingBox().min().y() - ground.yAt(v.center().x()))
-        .min().orElse(0d);
+    double minYGap = Locomotion.minYGap(robot, ground);
     robot.translate(new Vector2(0, Locomotion.INITIAL_PLACEMENT_Y_GAP - minYGap));
   }
 
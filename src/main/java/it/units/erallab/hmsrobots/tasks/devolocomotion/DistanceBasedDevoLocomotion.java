@@ -19,7 +19,6 @@ package it.units.erallab.hmsrobots.tasks.devolocomotion;
 
 import it.units.erallab.hmsrobots.core.objects.Ground;
 import it.units.erallab.hmsrobots.core.objects.Robot;
-import it.units.erallab.hmsrobots.core.objects.WorldObject;
 import it.units.erallab.hmsrobots.core.snapshots.Snapshot;
 import it.units.erallab.hmsrobots.core.snapshots.SnapshotListener;
 import it.units.erallab.hmsrobots.core.snapshots.Snapshottable;
@@ -96,10 +95,10 @@ public class DistanceBasedDevoLocomotion extends DevoLocomotion {
     //init world
     World<Body> world = new World<>();
     world.setSettings(settings);
-    Ground ground = new Ground(groundProfile[0], groundProfile[1]);
+    Ground ground = new Ground(groundGeometry);
     Robot robot = solution.apply(null);
     rebuildWorld(ground, robot, world, initialPlacement);
-    List<WorldObject> worldObjects = List.of(ground, robot);
+    AbstractTask.StepPlan stepPlan = AbstractTask.StepPlan.of(List.of(ground, robot));
     //run
     DevoOutcome devoOutcome = new DevoOutcome();
     Map<Double, Outcome.Observation> observations = new HashMap<>();
@@ -120,7 +119,7 @@ public class DistanceBasedDevoLocomotion extends DevoLocomotion {
     }
     while (t < maxT) {
       t = AbstractTask.updateWorld(
-          t, settings.getStepFrequency(), world, worldObjects,
+          t, settings.getStepFrequency(), world, stepPlan,
           listener
       );
       observations.put(t, new Outcome.Observation(
@@ -148,7 +147,7 @@ public class DistanceBasedDevoLocomotion extends DevoLocomotion {
         //place
         world.removeAllBodies();
         rebuildWorld(ground, robot, world, minX);
-        worldObjects = List.of(ground, robot);
+        stepPlan = AbstractTask.StepPlan.of(List.of(ground, robot));
         stageX = robot.center().x();
         targetXs.add(stageX + stageMinDistance);
       }
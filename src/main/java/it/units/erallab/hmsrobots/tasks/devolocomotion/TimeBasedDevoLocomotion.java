@@ -19,7 +19,6 @@ package it.units.erallab.hmsrobots.tasks.devolocomotion;
 
 import it.units.erallab.hmsrobots.core.objects.Ground;
 import it.units.erallab.hmsrobots.core.objects.Robot;
-import it.units.erallab.hmsrobots.core.objects.WorldObject;
 import it.units.erallab.hmsrobots.core.snapshots.SnapshotListener;
 import it.units.erallab.hmsrobots.tasks.AbstractTask;
 import it.units.erallab.hmsrobots.tasks.devolocomotion.DevoOutcome.DevoStageOutcome;
@@ -93,10 +92,10 @@ public class TimeBasedDevoLocomotion extends DevoLocomotion {
     //init world
     World<Body> world = new World<>();
     world.setSettings(settings);
-    Ground ground = new Ground(groundProfile[0], groundProfile[1]);
+    Ground ground = new Ground(groundGeometry);
     Robot robot = solution.apply(null);
     rebuildWorld(ground, robot, world, initialPlacement);
-    List<WorldObject> worldObjects = List.of(ground, robot);
+    AbstractTask.StepPlan stepPlan = AbstractTask.StepPlan.of(List.of(ground, robot));
     //run
     DevoOutcome devoOutcome = new DevoOutcome();
     Map<Double, Outcome.Observation> observations = new HashMap<>();
@@ -104,7 +103,7 @@ public class TimeBasedDevoLocomotion extends DevoLocomotion {
     double stageFinalT = copiedDevelopmentSchedule.size() > 0 ? copiedDevelopmentSchedule.remove(0) : maxT;
     while (t < maxT) {
       t = AbstractTask.updateWorld(
-          t, settings.getStepFrequency(), world, worldObjects,
+          t, settings.getStepFrequency(), world, stepPlan,
           listener
       );
       observations.put(t, new Outcome.Observation(
@@ -125,7 +124,7 @@ public class TimeBasedDevoLocomotion extends DevoLocomotion {
         //place
         world.removeAllBodies();
         rebuildWorld(ground, robot, world, minX);
-        worldObjects = List.of(ground, robot);
+        stepPlan = AbstractTask.StepPlan.of(List.of(ground, robot));
       }
     }
     if (!observations.isEmpty()) {
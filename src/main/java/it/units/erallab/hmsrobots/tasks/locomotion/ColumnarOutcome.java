@@ -0,0 +1,456 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.tasks.locomotion;
+
+import it.units.erallab.hmsrobots.behavior.BehaviorUtils;
+import it.units.erallab.hmsrobots.behavior.Footprint;
+import it.units.erallab.hmsrobots.core.geometry.Point2;
+import it.units.erallab.hmsrobots.core.geometry.Poly;
+import it.units.erallab.hmsrobots.core.snapshots.VoxelPoly;
+import it.units.erallab.hmsrobots.util.BooleanGrid;
+import it.units.erallab.hmsrobots.util.DoubleRange;
+import it.units.erallab.hmsrobots.util.Grid;
+
+import java.util.*;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
+
+/**
+ * An {@link Outcome} which stores observations column-wise in primitive arrays, one value per tick and per voxel,
+ * instead of retaining one {@link VoxelPoly} object graph per voxel per tick. All the accessors give the same results
+ * of {@link Outcome}. {@link #getObservations()} rebuilds the voxel polies on each invocation: malfunctions of
+ * breakable voxels are not stored.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class ColumnarOutcome extends Outcome {
+
+  private static final int N_OF_VERTEXES = 4;
+
+  private final Columns columns;
+  private final int from;
+  private final int to;
+
+  public ColumnarOutcome(Map<Double, Observation> observations) {
+    this(build(observations));
+  }
+
+  private ColumnarOutcome(Columns columns, int from, int to) {
+    super(Map.of());
+    this.columns = columns;
+    this.from = from;
+    this.to = to;
+  }
+
+  private ColumnarOutcome(Builder builder) {
+    this(builder.columns(), 0, builder.nOfTicks);
+  }
+
+  public static class Builder {
+
+    private int w;
+    private int h;
+    private int[] slots;
+    private int nOfSlots;
+    private int capacity;
+    private int nOfTicks;
+    private double[] times;
+    private double[] terrainHeights;
+    private double[] computationTimes;
+    private double[] vertexes;
+    private double[] angles;
+    private double[] velocityXs;
+    private double[] velocityYs;
+    private double[] areaRatios;
+    private double[] areaRatioEnergies;
+    private double[] lastAppliedForces;
+    private double[] controlEnergies;
+    private BitSet touchingGround;
+
+    public Builder() {
+      this(16);
+    }
+
+    public Builder(int expectedNOfTicks) {
+      capacity = Math.max(1, expectedNOfTicks);
+    }
+
+    public Builder add(double t, Observation observation) {
+      Grid<VoxelPoly> polies = observation.voxelPolies();
+      if (slots == null) {
+        init(polies);
+      } else {
+        if (polies.getW() != w || polies.getH() != h) {
+          throw new IllegalArgumentException(String.format(
+              "Wrong grid size: %dx%d expected, %dx%d found",
+              w,
+              h,
+              polies.getW(),
+              polies.getH()
+          ));
+        }
+        if (t <= times[nOfTicks - 1]) {
+          throw new IllegalArgumentException(String.format(
+              "Time %f is not after last time %f",
+              t,
+              times[nOfTicks - 1]
+          ));
+        }
+      }
+      if (nOfTicks == capacity) {
+        grow();
+      }
+      int k = 0;
+      for (int c = 0; c < w * h; c++) {
+        VoxelPoly poly = polies.get(c % w, c / w);
+        if ((poly == null) != (slots[c] < 0)) {
+          throw new IllegalArgumentException(String.format(
+              "Wrong voxel at (%d,%d): the robot shape changed",
+              c % w,
+              c / w
+          ));
+        }
+        if (poly == null) {
+          continue;
+        }
+        Point2[] polyVertexes = poly.vertexes();
+        if (polyVertexes.length != N_OF_VERTEXES) {
+          throw new IllegalArgumentException(String.format(
+              "Wrong number of vertexes: %d expected, %d found",
+              N_OF_VERTEXES,
+              polyVertexes.length
+          ));
+        }
+        int i = nOfTicks * nOfSlots + k;
+        for (int j = 0; j < N_OF_VERTEXES; j++) {
+          vertexes[2 * (i * N_OF_VERTEXES + j)] = polyVertexes[j].x();
+          vertexes[2 * (i * N_OF_VERTEXES + j) + 1] = polyVertexes[j].y();
+        }
+        angles[i] = poly.getAngle();
+        velocityXs[i] = poly.getLinearVelocity().x();
+        velocityYs[i] = poly.getLinearVelocity().y();
+        areaRatios[i] = poly.getAreaRatio();
+        areaRatioEnergies[i] = poly.getAreaRatioEnergy();
+        lastAppliedForces[i] = poly.getLastAppliedForce();
+        controlEnergies[i] = poly.getControlEnergy();
+        touchingGround.set(i, poly.isTouchingGround());
+        k = k + 1;
+      }
+      times[nOfTicks] = t;
+      terrainHeights[nOfTicks] = observation.terrainHeight();
+      computationTimes[nOfTicks] = observation.computationTime();
+      nOfTicks = nOfTicks + 1;
+      return this;
+    }
+
+    public ColumnarOutcome build() {
+      return new ColumnarOutcome(this);
+    }
+
+    private Columns columns() {
+      if (slots == null) {
+        return new Columns(0, 0, new int[0], 0, new double[0], new double[0], new double[0], new double[0],
+            new double[0], new double[0], new double[0], new double[0], new double[0], new double[0], new double[0],
+            new BitSet()
+        );
+      }
+      return new Columns(w, h, slots, nOfSlots, times, terrainHeights, computationTimes, vertexes, angles,
+          velocityXs, velocityYs, areaRatios, areaRatioEnergies, lastAppliedForces, controlEnergies, touchingGround
+      );
+    }
+
+    private void grow() {
+      capacity = capacity * 2;
+      times = Arrays.copyOf(times, capacity);
+      terrainHeights = Arrays.copyOf(terrainHeights, capacity);
+      computationTimes = Arrays.copyOf(computationTimes, capacity);
+      vertexes = Arrays.copyOf(vertexes, capacity * nOfSlots * N_OF_VERTEXES * 2);
+      angles = Arrays.copyOf(angles, capacity * nOfSlots);
+      velocityXs = Arrays.copyOf(velocityXs, capacity * nOfSlots);
+      velocityYs = Arrays.copyOf(velocityYs, capacity * nOfSlots);
+      areaRatios = Arrays.copyOf(areaRatios, capacity * nOfSlots);
+      areaRatioEnergies = Arrays.copyOf(areaRatioEnergies, capacity * nOfSlots);
+      lastAppliedForces = Arrays.copyOf(lastAppliedForces, capacity * nOfSlots);
+      controlEnergies = Arrays.copyOf(controlEnergies, capacity * nOfSlots);
+    }
+
+    private void init(Grid<VoxelPoly> polies) {
+      w = polies.getW();
+      h = polies.getH();
+      slots = new int[w * h];
+      for (int c = 0; c < w * h; c++) {
+        if (polies.get(c % w, c / w) == null) {
+          slots[c] = -1;
+        } else {
+          slots[c] = nOfSlots;
+          nOfSlots = nOfSlots + 1;
+        }
+      }
+      times = new double[capacity];
+      terrainHeights = new double[capacity];
+      computationTimes = new double[capacity];
+      vertexes = new double[capacity * nOfSlots * N_OF_VERTEXES * 2];
+      angles = new double[capacity * nOfSlots];
+      velocityXs = new double[capacity * nOfSlots];
+      velocityYs = new double[capacity * nOfSlots];
+      areaRatios = new double[capacity * nOfSlots];
+      areaRatioEnergies = new double[capacity * nOfSlots];
+      lastAppliedForces = new double[capacity * nOfSlots];
+      controlEnergies = new double[capacity * nOfSlots];
+      touchingGround = new BitSet(capacity * nOfSlots);
+    }
+  }
+
+  private record Columns(
+      int w,
+      int h,
+      int[] slots,
+      int nOfSlots,
+      double[] times,
+      double[] terrainHeights,
+      double[] computationTimes,
+      double[] vertexes,
+      double[] angles,
+      double[] velocityXs,
+      double[] velocityYs,
+      double[] areaRatios,
+      double[] areaRatioEnergies,
+      double[] lastAppliedForces,
+      double[] controlEnergies,
+      BitSet touchingGround
+  ) {}
+
+  private static Builder build(Map<Double, Observation> observations) {
+    Builder builder = new Builder(observations.size());
+    new TreeMap<>(observations).forEach(builder::add);
+    return builder;
+  }
+
+  @Override
+  public double getAreaRatioEnergy() {
+    return sum(last(), columns.areaRatioEnergies) - sum(first(), columns.areaRatioEnergies);
+  }
+
+  @Override
+  public Grid<Boolean> getAveragePosture(int n) {
+    int nOfSlots = columns.nOfSlots;
+    double[] minXs = new double[nOfSlots];
+    double[] minYs = new double[nOfSlots];
+    double[] maxXs = new double[nOfSlots];
+    double[] maxYs = new double[nOfSlots];
+    List<BooleanGrid> postures = new ArrayList<>(to - from);
+    for (int tick = from; tick < to; tick++) {
+      for (int k = 0; k < nOfSlots; k++) {
+        int offset = (tick * nOfSlots + k) * N_OF_VERTEXES * 2;
+        minXs[k] = Double.POSITIVE_INFINITY;
+        minYs[k] = Double.POSITIVE_INFINITY;
+        maxXs[k] = Double.NEGATIVE_INFINITY;
+        maxYs[k] = Double.NEGATIVE_INFINITY;
+        for (int j = 0; j < N_OF_VERTEXES; j++) {
+          minXs[k] = Math.min(minXs[k], columns.vertexes[offset + 2 * j]);
+          maxXs[k] = Math.max(maxXs[k], columns.vertexes[offset + 2 * j]);
+          minYs[k] = Math.min(minYs[k], columns.vertexes[offset + 2 * j + 1]);
+          maxYs[k] = Math.max(maxYs[k], columns.vertexes[offset + 2 * j + 1]);
+        }
+      }
+      postures.add(BehaviorUtils.computePosture(minXs, minYs, maxXs, maxYs, n));
+    }
+    return BooleanGrid.majority(postures).toGrid();
+  }
+
+  @Override
+  public SortedMap<DoubleRange, Double> getCenterAngleSpectrum(double minF, double maxF, int nBins) {
+    return BehaviorUtils.computeQuantizedSpectrum(centralSignal(i -> columns.angles[i]), minF, maxF, nBins);
+  }
+
+  @Override
+  public SortedMap<DoubleRange, Double> getCenterXPositionSpectrum(double minF, double maxF, int nBins) {
+    return BehaviorUtils.computeQuantizedSpectrum(centralSignal(i -> centerX(columns, i)), minF, maxF, nBins);
+  }
+
+  @Override
+  public SortedMap<DoubleRange, Double> getCenterXVelocitySpectrum(double minF, double maxF, int nBins) {
+    return BehaviorUtils.computeQuantizedSpectrum(centralSignal(i -> columns.velocityXs[i]), minF, maxF, nBins);
+  }
+
+  @Override
+  public SortedMap<DoubleRange, Double> getCenterYPositionSpectrum(double minF, double maxF, int nBins) {
+    return BehaviorUtils.computeQuantizedSpectrum(centralSignal(i -> centerY(columns, i)), minF, maxF, nBins);
+  }
+
+  @Override
+  public SortedMap<DoubleRange, Double> getCenterYVelocitySpectrum(double minF, double maxF, int nBins) {
+    return BehaviorUtils.computeQuantizedSpectrum(centralSignal(i -> columns.velocityYs[i]), minF, maxF, nBins);
+  }
+
+  @Override
+  public double getComputationTime() {
+    return columns.computationTimes[last()] - columns.computationTimes[first()];
+  }
+
+  @Override
+  public double getControlEnergy() {
+    return sum(last(), columns.controlEnergies) - sum(first(), columns.controlEnergies);
+  }
+
+  @Override
+  public double getDistance() {
+    return robotCenterX(last()) - robotCenterX(first());
+  }
+
+  @Override
+  public List<SortedMap<DoubleRange, Double>> getFootprintsSpectra(int n, double minF, double maxF, int nBins) {
+    int nOfSlots = columns.nOfSlots;
+    double[] minXs = new double[nOfSlots];
+    double[] maxXs = new double[nOfSlots];
+    boolean[] touchings = new boolean[nOfSlots];
+    Footprint[] footprints = new Footprint[to - from];
+    for (int tick = from; tick < to; tick++) {
+      for (int k = 0; k < nOfSlots; k++) {
+        int i = tick * nOfSlots + k;
+        minXs[k] = Double.POSITIVE_INFINITY;
+        maxXs[k] = Double.NEGATIVE_INFINITY;
+        for (int j = 0; j < N_OF_VERTEXES; j++) {
+          minXs[k] = Math.min(minXs[k], columns.vertexes[(i * N_OF_VERTEXES + j) * 2]);
+          maxXs[k] = Math.max(maxXs[k], columns.vertexes[(i * N_OF_VERTEXES + j) * 2]);
+        }
+        touchings[k] = columns.touchingGround.get(i);
+      }
+      footprints[tick - from] = BehaviorUtils.computeFootprint(minXs, maxXs, touchings, n);
+    }
+    return IntStream.range(0, n)
+        .mapToObj(j -> {
+          SortedMap<Double, Double> signal = new TreeMap<>();
+          for (int tick = from; tick < to; tick++) {
+            signal.put(columns.times[tick], footprints[tick - from].getMask()[j] ? 1d : 0d);
+          }
+          return BehaviorUtils.computeQuantizedSpectrum(signal, minF, maxF, nBins);
+        })
+        .toList();
+  }
+
+  @Override
+  public SortedMap<Double, Observation> getObservations() {
+    SortedMap<Double, Observation> observations = new TreeMap<>();
+    for (int tick = from; tick < to; tick++) {
+      final int offset = tick * columns.nOfSlots;
+      Grid<VoxelPoly> polies = Grid.create(columns.w, columns.h, (x, y) -> {
+        int k = columns.slots[y * columns.w + x];
+        return k < 0 ? null : voxelPoly(columns, offset + k);
+      });
+      observations.put(
+          columns.times[tick],
+          new Observation(polies, columns.terrainHeights[tick], columns.computationTimes[tick])
+      );
+    }
+    return Collections.unmodifiableSortedMap(observations);
+  }
+
+  @Override
+  public double getTime() {
+    return columns.times[last()] - columns.times[first()];
+  }
+
+  @Override
+  public Outcome subOutcome(double startT, double endT) {
+    return new ColumnarOutcome(columns, indexOf(startT), indexOf(endT));
+  }
+
+  private static double centerX(Columns columns, int i) {
+    double x = 0d;
+    for (int j = 0; j < N_OF_VERTEXES; j++) {
+      x = x + columns.vertexes[(i * N_OF_VERTEXES + j) * 2];
+    }
+    return x / (double) N_OF_VERTEXES;
+  }
+
+  private static double centerY(Columns columns, int i) {
+    double y = 0d;
+    for (int j = 0; j < N_OF_VERTEXES; j++) {
+      y = y + columns.vertexes[(i * N_OF_VERTEXES + j) * 2 + 1];
+    }
+    return y / (double) N_OF_VERTEXES;
+  }
+
+  private static VoxelPoly voxelPoly(Columns columns, int i) {
+    Point2[] vertexes = new Point2[N_OF_VERTEXES];
+    for (int j = 0; j < N_OF_VERTEXES; j++) {
+      vertexes[j] = Point2.of(
+          columns.vertexes[(i * N_OF_VERTEXES + j) * 2],
+          columns.vertexes[(i * N_OF_VERTEXES + j) * 2 + 1]
+      );
+    }
+    return new VoxelPoly(
+        Poly.of(vertexes),
+        columns.angles[i],
+        Point2.of(columns.velocityXs[i], columns.velocityYs[i]),
+        columns.touchingGround.get(i),
+        columns.areaRatios[i],
+        columns.areaRatioEnergies[i],
+        columns.lastAppliedForces[i],
+        columns.controlEnergies[i]
+    );
+  }
+
+  private SortedMap<Double, Double> centralSignal(IntToDoubleFunction function) {
+    if (columns.nOfSlots == 0) {
+      throw new IllegalArgumentException("Cannot get central element of an empty grid");
+    }
+    int k = BehaviorUtils.getCentralElement(Grid.create(
+        columns.w,
+        columns.h,
+        (x, y) -> columns.slots[y * columns.w + x] < 0 ? null : columns.slots[y * columns.w + x]
+    ));
+    SortedMap<Double, Double> signal = new TreeMap<>();
+    for (int tick = from; tick < to; tick++) {
+      signal.put(columns.times[tick], function.applyAsDouble(tick * columns.nOfSlots + k));
+    }
+    return signal;
+  }
+
+  private int first() {
+    if (from >= to) {
+      throw new NoSuchElementException();
+    }
+    return from;
+  }
+
+  private int indexOf(double t) {
+    int index = Arrays.binarySearch(columns.times, from, to, t);
+    return index < 0 ? (-index - 1) : index;
+  }
+
+  private int last() {
+    if (from >= to) {
+      throw new NoSuchElementException();
+    }
+    return to - 1;
+  }
+
+  private double robotCenterX(int tick) {
+    double x = 0d;
+    for (int k = 0; k < columns.nOfSlots; k++) {
+      x = x + centerX(columns, tick * columns.nOfSlots + k);
+    }
+    return x / (double) columns.nOfSlots;
+  }
+
+  private double sum(int tick, double[] values) {
+    return Arrays.stream(values, tick * columns.nOfSlots, (tick + 1) * columns.nOfSlots).sum();
+  }
+
+}
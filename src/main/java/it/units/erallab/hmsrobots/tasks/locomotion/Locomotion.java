@@ -19,6 +19,7 @@ package it.units.erallab.hmsrobots.tasks.locomotion;
 import it.units.erallab.hmsrobots.core.geometry.BoundingBox;
 import it.units.erallab.hmsrobots.core.objects.Ground;
 import it.units.erallab.hmsrobots.core.objects.Robot;
+import it.units.erallab.hmsrobots.core.objects.Voxel;
 import it.units.erallab.hmsrobots.core.objects.WorldObject;
 import it.units.erallab.hmsrobots.core.snapshots.SnapshotListener;
 import it.units.erallab.hmsrobots.tasks.AbstractTask;
@@ -43,22 +44,97 @@ public class Locomotion extends AbstractTask<Robot, Outcome> {
   public static final int TERRAIN_LENGTH = 2000;
   public static final double TERRAIN_BORDER_WIDTH = 10d;
 
+  private static final int TERRAINS_CACHE_SIZE = 64;
+  //names embed seeds, hence only the most recently used terrains are kept
+  private static final Map<String, double[][]> TERRAINS = Collections.synchronizedMap(new LinkedHashMap<>(
+      16,
+      0.75f,
+      true
+  ) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, double[][]> eldest) {
+      return size() > TERRAINS_CACHE_SIZE;
+    }
+  });
+
   private final double finalT;
-  private final double[][] groundProfile;
+  private final Ground.Geometry groundGeometry;
   private final double initialPlacement;
+  private final ObservationPolicy observationPolicy;
 
   public Locomotion(double finalT, double[][] groundProfile, Settings settings) {
     this(finalT, groundProfile, groundProfile[0][1] + INITIAL_PLACEMENT_X_GAP, settings);
   }
 
+  public Locomotion(double finalT, double[][] groundProfile, Settings settings, ObservationPolicy observationPolicy) {
+    this(finalT, groundProfile, groundProfile[0][1] + INITIAL_PLACEMENT_X_GAP, settings, observationPolicy);
+  }
+
   public Locomotion(double finalT, double[][] groundProfile, double initialPlacement, Settings settings) {
+    this(finalT, groundProfile, initialPlacement, settings, new ObservationPolicy.EveryTick());
+  }
+
+  public Locomotion(
+      double finalT,
+      double[][] groundProfile,
+      double initialPlacement,
+      Settings settings,
+      ObservationPolicy observationPolicy
+  ) {
     super(settings);
     this.finalT = finalT;
-    this.groundProfile = groundProfile;
+    groundGeometry = new Ground.Geometry(groundProfile[0], groundProfile[1]);
     this.initialPlacement = initialPlacement;
+    this.observationPolicy = observationPolicy;
+  }
+
+  /**
+   * Returns the minimum vertical gap between the bottom of the voxels of the robot and the ground below their centers,
+   * or 0 if the robot has no voxels.
+   */
+  public static double minYGap(Robot robot, Ground ground) {
+    int n = (int) robot.getVoxels().count(Objects::nonNull);
+    double[] xs = new double[n];
+    double[] minYs = new double[n];
+    int i = 0;
+    for (int y = 0; y < robot.getVoxels().getH(); y++) {
+      for (int x = 0; x < robot.getVoxels().getW(); x++) {
+        Voxel voxel = robot.getVoxels().get(x, y);
+        if (voxel != null) {
+          xs[i] = voxel.center().x();
+          minYs[i] = voxel.boundingBox().min().y();
+          i = i + 1;
+        }
+      }
+    }
+    double[] groundYs = new double[n];
+    ground.yAt(xs, groundYs);
+    double minYGap = Double.POSITIVE_INFINITY;
+    for (i = 0; i < n; i++) {
+      minYGap = Math.min(minYGap, minYs[i] - groundYs[i]);
+    }
+    return n == 0 ? 0d : minYGap;
   }
 
+  /**
+   * Returns the profile of the terrain with the provided name. Profiles are generated once for each name and then
+   * copied from a cache of the most recently used ones. Profiles are generated outside the lock of the cache, hence
+   * threads asking for a terrain not cached yet do not wait for each other, and the same terrain may be generated more
+   * than once.
+   */
   public static double[][] createTerrain(String name) {
+    double[][] profile = TERRAINS.get(name);
+    if (profile == null) {
+      double[][] newProfile = buildTerrain(name);
+      profile = TERRAINS.putIfAbsent(name, newProfile);
+      if (profile == null) {
+        profile = newProfile;
+      }
+    }
+    return new double[][]{profile[0].clone(), profile[1].clone()};
+  }
+
+  private static double[][] buildTerrain(String name) {
     String flat = "flat";
     String flatWithStart = "flatWithStart-(?<seed>[0-9]+)";
     String hilly = "hilly-(?<h>[0-9]+(\\.[0-9]+)?)-(?<w>[0-9]+(\\.[0-9]+)?)-(?<seed>[0-9]+)";
@@ -172,7 +248,7 @@ public class Locomotion extends AbstractTask<Robot, Outcome> {
     World<Body> world = new World<>();
     world.setSettings(settings);
     List<WorldObject> worldObjects = new ArrayList<>();
-    Ground ground = new Ground(groundProfile[0], groundProfile[1]);
+    Ground ground = new Ground(groundGeometry);
     ground.addTo(world);
     worldObjects.add(ground);
     robot.reset();
@@ -180,29 +256,37 @@ public class Locomotion extends AbstractTask<Robot, Outcome> {
     BoundingBox boundingBox = robot.boundingBox();
     robot.translate(new Vector2(initialPlacement - boundingBox.min().x(), 0));
     //translate on y
-    double minYGap = robot.getVoxels().values().stream()
-        .filter(Objects::nonNull)
-        .mapToDouble(v -> v.boundingBox().min().y() - ground.yAt(v.center().x()))
-        .min().orElse(0d);
+    double minYGap = minYGap(robot, ground);
     robot.translate(new Vector2(0, INITIAL_PLACEMENT_Y_GAP - minYGap));
     //get initial x
     double initCenterX = robot.center().x();
     //add robot to world
     robot.addTo(world);
     worldObjects.add(robot);
+    AbstractTask.StepPlan stepPlan = AbstractTask.StepPlan.of(worldObjects);
     //run
-    Map<Double, Outcome.Observation> observations = new HashMap<>((int) Math.ceil(finalT / settings.getStepFrequency()));
+    ColumnarOutcome.Builder outcomeBuilder = new ColumnarOutcome.Builder(observationPolicy.expectedNOfObservations(
+        finalT,
+        settings.getStepFrequency()
+    ));
     double t = 0d;
+    int tick = 0;
     while (t < finalT) {
-      t = AbstractTask.updateWorld(t, settings.getStepFrequency(), world, worldObjects, listener);
-      observations.put(t, new Outcome.Observation(
-          Grid.create(robot.getVoxels(), v -> v == null ? null : v.getVoxelPoly()),
-          ground.yAt(robot.center().x()),
-          (double) stopWatch.getTime(TimeUnit.MILLISECONDS) / 1000d
-      ));
+      double previousT = t;
+      t = AbstractTask.updateWorld(t, settings.getStepFrequency(), world, stepPlan, listener);
+      //the first and last ticks are always observed
+      boolean observed = tick == 0 || t >= finalT || observationPolicy.isObserved(tick, previousT, t);
+      tick = tick + 1;
+      if (observed) {
+        outcomeBuilder.add(t, new Outcome.Observation(
+            Grid.create(robot.getVoxels(), v -> v == null ? null : v.getVoxelPoly()),
+            ground.yAt(robot.center().x()),
+            (double) stopWatch.getTime(TimeUnit.MILLISECONDS) / 1000d
+        ));
+      }
     }
     stopWatch.stop();
     //prepare outcome
-    return new Outcome(observations);
+    return outcomeBuilder.build();
   }
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.tasks.locomotion;
+
+/**
+ * Decides at which ticks of a {@link Locomotion} episode the robot is observed and the observation is stored in the
+ * {@link Outcome}. The first and the last ticks are always observed, regardless of the policy, so that, e.g.,
+ * {@link Outcome#getDistance()} and {@link Outcome#getVelocity()} do not depend on the policy.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public interface ObservationPolicy {
+
+  int expectedNOfObservations(double finalT, double stepT);
+
+  boolean isObserved(int tick, double previousT, double t);
+
+  record EveryDeltaT(double dT) implements ObservationPolicy {
+    public EveryDeltaT {
+      if (dT <= 0) {
+        throw new IllegalArgumentException(String.format("Delta t must be positive: %f found", dT));
+      }
+    }
+
+    @Override
+    public int expectedNOfObservations(double finalT, double stepT) {
+      return (int) Math.ceil(finalT / dT) + 2;
+    }
+
+    @Override
+    public boolean isObserved(int tick, double previousT, double t) {
+      return Math.floor(t / dT) > Math.floor(previousT / dT);
+    }
+  }
+
+  record EveryNTicks(int n) implements ObservationPolicy {
+    public EveryNTicks {
+      if (n < 1) {
+        throw new IllegalArgumentException(String.format("Number of ticks must be positive: %d found", n));
+      }
+    }
+
+    @Override
+    public int expectedNOfObservations(double finalT, double stepT) {
+      return (int) Math.ceil(finalT / stepT) / n + 2;
+    }
+
+    @Override
+    public boolean isObserved(int tick, double previousT, double t) {
+      return tick % n == 0;
+    }
+  }
+
+  record EveryTick() implements ObservationPolicy {
+    @Override
+    public int expectedNOfObservations(double finalT, double stepT) {
+      return (int) Math.ceil(finalT / stepT);
+    }
+
+    @Override
+    public boolean isObserved(int tick, double previousT, double t) {
+      return true;
+    }
+  }
+
+  record FirstAndLast() implements ObservationPolicy {
+    @Override
+    public int expectedNOfObservations(double finalT, double stepT) {
+      return 2;
+    }
+
+    @Override
+    public boolean isObserved(int tick, double previousT, double t) {
+      return false;
+    }
+  }
+
+}
@@ -21,6 +21,7 @@ import it.units.erallab.hmsrobots.behavior.BehaviorUtils;
 import it.units.erallab.hmsrobots.behavior.Footprint;
 import it.units.erallab.hmsrobots.core.geometry.Point2;
 import it.units.erallab.hmsrobots.core.snapshots.VoxelPoly;
+import it.units.erallab.hmsrobots.util.BooleanGrid;
 import it.units.erallab.hmsrobots.util.DoubleRange;
 import it.units.erallab.hmsrobots.util.Grid;
 
@@ -62,10 +63,13 @@ public class Outcome {
   }
 
   public Grid<Boolean> getAveragePosture(int n) {
-    return BehaviorUtils.computeAveragePosture(observations.values()
+    return BooleanGrid.majority(observations.values()
         .stream()
-        .map(o -> BehaviorUtils.computePosture(o.voxelPolies().values().stream().filter(Objects::nonNull).toList(), n))
-        .toList());
+        .map(o -> BehaviorUtils.computePostureGrid(
+            o.voxelPolies().values().stream().filter(Objects::nonNull).toList(),
+            n
+        ))
+        .toList()).toGrid();
   }
 
   public SortedMap<DoubleRange, Double> getCenterAngleSpectrum(double minF, double maxF, int nBins) {
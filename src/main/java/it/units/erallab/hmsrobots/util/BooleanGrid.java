@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A {@link Grid}-like container of booleans backed by a primitive array, which does not box values on get and set.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class BooleanGrid implements Serializable {
+
+  private final int w;
+  private final int h;
+  private final boolean[] values;
+
+  public BooleanGrid(int w, int h) {
+    this.w = w;
+    this.h = h;
+    values = new boolean[w * h];
+  }
+
+  public static BooleanGrid create(int w, int h, boolean value) {
+    BooleanGrid grid = new BooleanGrid(w, h);
+    grid.fill(value);
+    return grid;
+  }
+
+  /**
+   * Builds a new grid with the values of the provided one, where null values become false.
+   */
+  public static BooleanGrid from(Grid<Boolean> grid) {
+    BooleanGrid target = new BooleanGrid(grid.getW(), grid.getH());
+    for (int x = 0; x < grid.getW(); x++) {
+      for (int y = 0; y < grid.getH(); y++) {
+        Boolean value = grid.get(x, y);
+        if (value != null) {
+          target.set(x, y, value);
+        }
+      }
+    }
+    return target;
+  }
+
+  /**
+   * Builds a new grid where each element is true if and only if it is true in more than half of the provided grids,
+   * which must all have the same size.
+   */
+  public static BooleanGrid majority(Collection<BooleanGrid> grids) {
+    BooleanGrid first = grids.iterator().next();
+    int[] counts = new int[first.values.length];
+    for (BooleanGrid grid : grids) {
+      if (grid.w != first.w || grid.h != first.h) {
+        throw new IllegalArgumentException(String.format(
+            "Grids must have the same size: %dx%d and %dx%d found",
+            first.w,
+            first.h,
+            grid.w,
+            grid.h
+        ));
+      }
+      for (int i = 0; i < counts.length; i++) {
+        if (grid.values[i]) {
+          counts[i] = counts[i] + 1;
+        }
+      }
+    }
+    BooleanGrid majority = new BooleanGrid(first.w, first.h);
+    for (int i = 0; i < counts.length; i++) {
+      majority.values[i] = (double) counts[i] / (double) grids.size() > 0.5d;
+    }
+    return majority;
+  }
+
+  public BooleanGrid copy() {
+    BooleanGrid grid = new BooleanGrid(w, h);
+    System.arraycopy(values, 0, grid.values, 0, values.length);
+    return grid;
+  }
+
+  public int count() {
+    int count = 0;
+    for (boolean value : values) {
+      if (value) {
+        count = count + 1;
+      }
+    }
+    return count;
+  }
+
+  public void fill(boolean value) {
+    Arrays.fill(values, value);
+  }
+
+  public boolean get(int x, int y) {
+    return values[index(x, y)];
+  }
+
+  public int getH() {
+    return h;
+  }
+
+  public int getW() {
+    return w;
+  }
+
+  private int index(int x, int y) {
+    if (x < 0 || x >= w || y < 0 || y >= h) {
+      throw new IllegalArgumentException(String.format("Cannot access element at %d,%d on a %dx%d grid", x, y, w, h));
+    }
+    return (y * w) + x;
+  }
+
+  public void set(int x, int y, boolean value) {
+    values[index(x, y)] = value;
+  }
+
+  public Grid<Boolean> toGrid() {
+    return Grid.create(w, h, this::get);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = 31 * w + h;
+    result = 31 * result + Arrays.hashCode(values);
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    BooleanGrid grid = (BooleanGrid) o;
+    return w == grid.w && h == grid.h && Arrays.equals(values, grid.values);
+  }
+
+  @Override
+  public String toString() {
+    return toGrid().toString();
+  }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A {@link Grid}-like container of doubles backed by a primitive array, which does not box values on get and set.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class DoubleGrid implements Serializable {
+
+  private final int w;
+  private final int h;
+  private final double[] values;
+
+  public DoubleGrid(int w, int h) {
+    this.w = w;
+    this.h = h;
+    values = new double[w * h];
+  }
+
+  public static DoubleGrid create(int w, int h, double value) {
+    DoubleGrid grid = new DoubleGrid(w, h);
+    grid.fill(value);
+    return grid;
+  }
+
+  /**
+   * Builds a new grid with the values of the provided one, where null values become 0.
+   */
+  public static DoubleGrid from(Grid<Double> grid) {
+    DoubleGrid target = new DoubleGrid(grid.getW(), grid.getH());
+    for (int x = 0; x < grid.getW(); x++) {
+      for (int y = 0; y < grid.getH(); y++) {
+        Double value = grid.get(x, y);
+        if (value != null) {
+          target.set(x, y, value);
+        }
+      }
+    }
+    return target;
+  }
+
+  public DoubleGrid copy() {
+    DoubleGrid grid = new DoubleGrid(w, h);
+    System.arraycopy(values, 0, grid.values, 0, values.length);
+    return grid;
+  }
+
+  public void fill(double value) {
+    Arrays.fill(values, value);
+  }
+
+  public double get(int x, int y) {
+    return values[index(x, y)];
+  }
+
+  public int getH() {
+    return h;
+  }
+
+  public int getW() {
+    return w;
+  }
+
+  private int index(int x, int y) {
+    if (x < 0 || x >= w || y < 0 || y >= h) {
+      throw new IllegalArgumentException(String.format("Cannot access element at %d,%d on a %dx%d grid", x, y, w, h));
+    }
+    return (y * w) + x;
+  }
+
+  public void set(int x, int y, double value) {
+    values[index(x, y)] = value;
+  }
+
+  public Grid<Double> toGrid() {
+    return Grid.create(w, h, this::get);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = 31 * w + h;
+    result = 31 * result + Arrays.hashCode(values);
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    DoubleGrid grid = (DoubleGrid) o;
+    return w == grid.w && h == grid.h && Arrays.equals(values, grid.values);
+  }
+
+  @Override
+  public String toString() {
+    return toGrid().toString();
+  }
+
+}
@@ -50,6 +50,11 @@ public class Grid<T> implements Iterable<Grid.Entry<T>>, Serializable {
     this.ts = new Object[w * h];
   }
 
+  @FunctionalInterface
+  public interface CellConsumer<K> {
+    void accept(int x, int y, K k);
+  }
+
   public record Entry<K>(Key key, K value) implements Serializable {}
 
   private static final class GridIterator<K> implements Iterator<Entry<K>> {
@@ -71,12 +76,35 @@ public class Grid<T> implements Iterable<Grid.Entry<T>>, Serializable {
       int y = Math.floorDiv(c, grid.w);
       int x = c % grid.w;
       c = c + 1;
-      return new Entry<>(new Key(x, y), grid.get(x, y));
+      return new Entry<>(Key.of(x, y), grid.get(x, y));
     }
 
   }
 
-  public record Key(int x, int y) implements Serializable {}
+  public record Key(int x, int y) implements Serializable {
+
+    private final static int CACHE_SIZE = 32;
+    private final static Key[] CACHE = new Key[CACHE_SIZE * CACHE_SIZE];
+
+    static {
+      for (int y = 0; y < CACHE_SIZE; y++) {
+        for (int x = 0; x < CACHE_SIZE; x++) {
+          CACHE[y * CACHE_SIZE + x] = new Key(x, y);
+        }
+      }
+    }
+
+    /**
+     * Returns a key for the provided coordinates: keys with small non-negative coordinates are cached and hence not
+     * allocated anew at each invocation.
+     */
+    public static Key of(int x, int y) {
+      if (x >= 0 && x < CACHE_SIZE && y >= 0 && y < CACHE_SIZE) {
+        return CACHE[y * CACHE_SIZE + x];
+      }
+      return new Key(x, y);
+    }
+  }
 
   public static <K> Grid<K> copy(Grid<K> other) {
     Grid<K> grid = Grid.create(other);
@@ -151,7 +179,7 @@ public class Grid<T> implements Iterable<Grid.Entry<T>>, Serializable {
     StringBuilder sb = new StringBuilder();
     for (int y = 0; y < grid.getH(); y++) {
       for (int x = 0; x < grid.getW(); x++) {
-        sb.append(function.apply(new Grid.Entry<>(new Key(x, y), grid.get(x, y))));
+        sb.append(function.apply(new Grid.Entry<>(Key.of(x, y), grid.get(x, y))));
       }
       if (y < grid.getH() - 1) {
         sb.append(separator);
@@ -172,8 +200,42 @@ public class Grid<T> implements Iterable<Grid.Entry<T>>, Serializable {
     return columns;
   }
 
+  @SuppressWarnings("unchecked")
   public long count(Predicate<T> predicate) {
-    return values().stream().filter(predicate).count();
+    long count = 0;
+    for (Object t : ts) {
+      if (predicate.test((T) t)) {
+        count = count + 1;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Visits all the cells, row by row, without allocating entries or keys.
+   */
+  @SuppressWarnings("unchecked")
+  public void forEach(CellConsumer<? super T> consumer) {
+    for (int y = 0; y < h; y++) {
+      for (int x = 0; x < w; x++) {
+        consumer.accept(x, y, (T) ts[(y * w) + x]);
+      }
+    }
+  }
+
+  /**
+   * Visits the cells with a non-null value, row by row, without allocating entries or keys.
+   */
+  @SuppressWarnings("unchecked")
+  public void forEachNonNull(CellConsumer<? super T> consumer) {
+    for (int y = 0; y < h; y++) {
+      for (int x = 0; x < w; x++) {
+        Object t = ts[(y * w) + x];
+        if (t != null) {
+          consumer.accept(x, y, (T) t);
+        }
+      }
+    }
   }
 
   @SuppressWarnings("unchecked")
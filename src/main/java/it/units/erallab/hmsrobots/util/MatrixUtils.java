@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.util;
+
+/**
+ * Kernels operating on dense matrices, represented as arrays of rows, which write their results in preallocated
+ * matrices, or in place, and hence do not allocate. Products accumulate the terms of each element in the order of the
+ * inner index, so their results are the same of the textbook triple loop.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class MatrixUtils {
+
+  private static final int BLOCK_SIZE = 64;
+
+  private MatrixUtils() {
+  }
+
+  /**
+   * Adds {@code v} to each row of {@code m}.
+   */
+  public static void addToRows(double[][] m, double[] v) {
+    for (double[] row : m) {
+      for (int j = 0; j < row.length; j++) {
+        row[j] = row[j] + v[j];
+      }
+    }
+  }
+
+  public static void divide(double[][] m, double value) {
+    for (double[] row : m) {
+      for (int j = 0; j < row.length; j++) {
+        row[j] = row[j] / value;
+      }
+    }
+  }
+
+  /**
+   * Writes the rows of {@code m} one after the other in {@code v}.
+   */
+  public static void flat(double[][] m, double[] v) {
+    int c = 0;
+    for (double[] row : m) {
+      System.arraycopy(row, 0, v, c, row.length);
+      c = c + row.length;
+    }
+  }
+
+  /**
+   * Computes {@code c = a b}, where the inner dimension is the number of rows of {@code b}. Rows of {@code b} are
+   * visited in blocks, so that each block is reused for all the rows of {@code a} while it is in cache.
+   */
+  public static void multiply(double[][] a, double[][] b, double[][] c) {
+    int m = a.length;
+    int l = b.length;
+    int n = b[0].length;
+    for (int i = 0; i < m; i++) {
+      for (int j = 0; j < n; j++) {
+        c[i][j] = 0d;
+      }
+    }
+    for (int kb = 0; kb < l; kb = kb + BLOCK_SIZE) {
+      int kEnd = Math.min(kb + BLOCK_SIZE, l);
+      for (int jb = 0; jb < n; jb = jb + BLOCK_SIZE) {
+        int jEnd = Math.min(jb + BLOCK_SIZE, n);
+        for (int i = 0; i < m; i++) {
+          double[] aRow = a[i];
+          double[] cRow = c[i];
+          for (int k = kb; k < kEnd; k++) {
+            double aik = aRow[k];
+            double[] bRow = b[k];
+            for (int j = jb; j < jEnd; j++) {
+              cRow[j] = cRow[j] + aik * bRow[j];
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Computes {@code c = a b^T}, where the inner dimension is the number of columns of {@code b}: each element is the
+   * dot product of a row of {@code a} and a row of {@code b}, hence no transposed copy of {@code b} is needed.
+   */
+  public static void multiplyTransposed(double[][] a, double[][] b, double[][] c) {
+    int m = a.length;
+    int n = b.length;
+    int l = b[0].length;
+    for (int jb = 0; jb < n; jb = jb + BLOCK_SIZE) {
+      int jEnd = Math.min(jb + BLOCK_SIZE, n);
+      for (int i = 0; i < m; i++) {
+        double[] aRow = a[i];
+        for (int j = jb; j < jEnd; j++) {
+          double[] bRow = b[j];
+          double sum = 0d;
+          for (int k = 0; k < l; k++) {
+            sum = sum + aRow[k] * bRow[k];
+          }
+          c[i][j] = sum;
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes the values of {@code v}, row by row, in {@code m}.
+   */
+  public static void reshape(double[] v, double[][] m) {
+    int c = 0;
+    for (double[] row : m) {
+      System.arraycopy(v, c, row, 0, row.length);
+      c = c + row.length;
+    }
+  }
+
+  /**
+   * Replaces each row of {@code m} with its softmax.
+   */
+  public static void softmax(double[][] m) {
+    for (double[] row : m) {
+      double max = Double.NEGATIVE_INFINITY;
+      for (double value : row) {
+        max = Math.max(max, value);
+      }
+      double sum = 0d;
+      for (int j = 0; j < row.length; j++) {
+        row[j] = Math.exp(row[j] - max);
+        sum = sum + row[j];
+      }
+      for (int j = 0; j < row.length; j++) {
+        row[j] = row[j] / sum;
+      }
+    }
+  }
+
+  public static void tanh(double[][] m) {
+    for (double[] row : m) {
+      for (int j = 0; j < row.length; j++) {
+        row[j] = Math.tanh(row[j]);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded queue for one producer thread and one consumer thread, backed by a ring buffer, which does not use locks.
+ * When the queue is full, the producer either removes the oldest item ({@link OverflowPolicy#DROP_OLDEST}) or waits
+ * for the consumer to remove one ({@link OverflowPolicy#BLOCK}). Items are numbered progressively: the producer
+ * only advances the number of the next item to be put and the consumer, and the producer when dropping, advance the
+ * number of the oldest item by compare-and-set.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class RingBuffer<T> {
+
+  private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  public enum OverflowPolicy {DROP_OLDEST, BLOCK}
+
+  private final AtomicReferenceArray<T> items;
+  private final OverflowPolicy overflowPolicy;
+  private final AtomicLong oldest;
+  private volatile long next;
+  private volatile long nOfDropped;
+  private volatile Thread waitingProducer;
+
+  public RingBuffer(int capacity, OverflowPolicy overflowPolicy) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException(String.format("Capacity should be at least 1: %d found", capacity));
+    }
+    items = new AtomicReferenceArray<>(capacity);
+    this.overflowPolicy = overflowPolicy;
+    oldest = new AtomicLong();
+  }
+
+  public int capacity() {
+    return items.length();
+  }
+
+  public long getNOfDropped() {
+    return nOfDropped;
+  }
+
+  public OverflowPolicy getOverflowPolicy() {
+    return overflowPolicy;
+  }
+
+  /**
+   * Returns the oldest item, without removing it, or {@code null} if the queue is empty. To be invoked by the consumer.
+   */
+  public T peek() {
+    while (true) {
+      long n = oldest.get();
+      if (n == next) {
+        return null;
+      }
+      T item = items.get(index(n));
+      //the item is valid only if it has not been dropped, and hence replaced, meanwhile
+      if (oldest.get() == n) {
+        return item;
+      }
+    }
+  }
+
+  /**
+   * Removes and returns the oldest item, or {@code null} if the queue is empty. To be invoked by the consumer.
+   */
+  public T poll() {
+    while (true) {
+      long n = oldest.get();
+      if (n == next) {
+        return null;
+      }
+      T item = items.get(index(n));
+      if (oldest.compareAndSet(n, n + 1)) {
+        Thread producer = waitingProducer;
+        if (producer != null) {
+          LockSupport.unpark(producer);
+        }
+        return item;
+      }
+    }
+  }
+
+  /**
+   * Adds the item, applying the overflow policy if the queue is full. To be invoked by the producer. If the producer
+   * is interrupted while waiting, the item is not added and the interrupt status is kept.
+   *
+   * @return {@code true} if the item has been added.
+   */
+  public boolean put(T item) {
+    long n = next;
+    while (n - oldest.get() >= items.length()) {
+      if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+        long o = oldest.get();
+        if (n - o >= items.length() && oldest.compareAndSet(o, o + 1)) {
+          nOfDropped = nOfDropped + 1;
+        }
+      } else {
+        waitingProducer = Thread.currentThread();
+        if (n - oldest.get() >= items.length()) {
+          LockSupport.parkNanos(this, MAX_PARK_NANOS);
+        }
+        waitingProducer = null;
+        if (Thread.currentThread().isInterrupted()) {
+          return false;
+        }
+      }
+    }
+    items.set(index(n), item);
+    next = n + 1;
+    return true;
+  }
+
+  private int index(long n) {
+    return (int) (n % items.length());
+  }
+
+  public int size() {
+    return (int) Math.max(0, next - oldest.get());
+  }
+
+}
@@ -276,7 +276,7 @@ public class Utils {
     for (int i = 0; i < n; ++i) {
       double theta = (2 * i * Math.PI) / n;
       List<Grid.Key> rotatedCoordinates = coordinates.stream()
-          .map(p -> new Grid.Key(
+          .map(p -> Grid.Key.of(
               (int) Math.round(p.x() * Math.cos(theta) - p.y() * Math.sin(theta)),
               (int) Math.round(p.x() * Math.sin(theta) + p.y() * Math.cos(theta))
           ))
@@ -75,10 +75,15 @@ public class GridEpisodeRunner<S> implements Runnable {
               entry.key().x(),
               entry.key().y()
           ));
-          Object outcome = episode.apply(
-              entry.value().getLeft().value(),
-              gridSnapshotListener.listener(entry.key().x(), entry.key().y())
-          );
+          Object outcome;
+          try {
+            outcome = episode.apply(
+                entry.value().getLeft().value(),
+                gridSnapshotListener.listener(entry.key().x(), entry.key().y())
+            );
+          } finally {
+            gridSnapshotListener.done(entry.key().x(), entry.key().y());
+          }
           L.fine(String.format(
               "Ended %s in position (%d,%d) with outcome %s",
               episode.getClass().getSimpleName(),
@@ -27,69 +27,211 @@ import org.apache.commons.lang3.time.StopWatch;
 import org.apache.commons.lang3.tuple.Pair;
 
 import java.awt.*;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
 import java.io.File;
 import java.io.Flushable;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 import java.util.logging.Logger;
 
 /**
+ * Draws the snapshots of a grid of episodes on the frames of a video, which is encoded while the episodes run. Each
+ * episode draws its snapshots on its own tile, without synchronizing with the other episodes, and copies the region
+ * it covers from the tile to the frame. Frames are kept, by frame number, in a concurrent reorder buffer until all the
+ * episodes have drawn on them and are then encoded in order by a dedicated thread, or through a provided executor: an
+ * episode which is {@code bufferSize} frames ahead of the oldest frame not yet encoded waits for the other episodes
+ * to catch up, or for the encoding to proceed, hence the memory occupation does not depend on the length of the
+ * video.
+ *
  * @author Eric Medvet <eric.medvet@gmail.com>
  */
 public class GridFileWriter implements Flushable, GridSnapshotListener {
 
   private static final Logger L = Logger.getLogger(GridFileWriter.class.getName());
+  static final int DEFAULT_BUFFER_SIZE = 30;
   private final int w;
   private final int h;
   private final double startTime;
   private final double frameRate;
   private final VideoUtils.EncoderFacility encoder;
   private final File file;
-  private final Grid<Drawer> drawersGrid;
-  private final Grid<List<Double>> timesGrid;
-  private final List<BufferedImage> images;
+  private final int bufferSize;
+  private final Grid<CellState> statesGrid;
+  //frames being drawn, by frame number
+  private final ConcurrentSkipListMap<Integer, BufferedImage> frames;
+  private final Queue<BufferedImage> freeImages;
+  //guards the waits of the episodes and of the flush
+  private final Object monitor;
+  //tells if an encoding of completed frames is scheduled or running
+  private final AtomicBoolean encoding;
+  private final boolean ownEncodingExecutor;
+  private final ExecutorService encodingExecutor;
+  private volatile int nextFrameNumber;
+  private VideoUtils.VideoEncoder videoEncoder;
+  private IOException encodingException;
+
+  public GridFileWriter(
+      int w,
+      int h,
+      double startTime,
+      double frameRate,
+      VideoUtils.EncoderFacility encoder,
+      File file,
+      Grid<String> namesGrid,
+      Grid<Drawer> drawersGrid
+  ) {
+    this(w, h, startTime, frameRate, DEFAULT_BUFFER_SIZE, encoder, file, namesGrid, drawersGrid);
+  }
 
   public GridFileWriter(
       int w,
       int h,
       double startTime,
       double frameRate,
+      int bufferSize,
       VideoUtils.EncoderFacility encoder,
       File file,
       Grid<String> namesGrid,
       Grid<Drawer> drawersGrid
   ) {
+    this(w, h, startTime, frameRate, bufferSize, encoder, file, namesGrid, drawersGrid, null);
+  }
+
+  /**
+   * Builds a writer which encodes the completed frames through the provided executor, which may be shared among
+   * writers and then bounds the number of videos being encoded at the same time. If the executor is {@code null}, the
+   * writer uses its own thread.
+   * <p>
+   * The episodes do not need to run all at the same time: an episode which has not started yet, i.e., whose listener
+   * has not been obtained yet, does not hold back the others, nor the encoding. Hence, if there are less threads than
+   * episodes, an episode which starts late does not appear on the frames which have already been encoded, but only
+   * from the first frame not yet encoded onwards, and the memory occupation is bounded by {@code bufferSize} anyway.
+   */
+  public GridFileWriter(
+      int w,
+      int h,
+      double startTime,
+      double frameRate,
+      int bufferSize,
+      VideoUtils.EncoderFacility encoder,
+      File file,
+      Grid<String> namesGrid,
+      Grid<Drawer> drawersGrid,
+      ExecutorService encodingExecutor
+  ) {
+    if (bufferSize < 1) {
+      throw new IllegalArgumentException(String.format("Buffer size should be at least 1: %d found", bufferSize));
+    }
     if (namesGrid.getW() != drawersGrid.getW() || namesGrid.getH() != drawersGrid.getH()) {
       throw new IllegalArgumentException("Names grid and drawers grid should have the same size");
     }
-    this.drawersGrid = Grid.create(
-        namesGrid.getW(),
-        namesGrid.getH(),
-        (x, y) -> Drawer.clip(
-            BoundingBox.of(
-                (double) x / (double) namesGrid.getW(),
-                (double) y / (double) namesGrid.getH(),
-                (double) (x + 1) / (double) namesGrid.getW(),
-                (double) (y + 1) / (double) namesGrid.getH()
-            ),
-            drawersGrid.get(x, y)
-        )
-    );
     this.w = w;
     this.h = h;
     this.startTime = startTime;
     this.frameRate = frameRate;
     this.encoder = encoder;
     this.file = file;
-    images = new ArrayList<>();
-    timesGrid = Grid.create(namesGrid.getW(), namesGrid.getH(), (x, y) -> new ArrayList<>());
+    this.bufferSize = bufferSize;
+    statesGrid = Grid.create(namesGrid.getW(), namesGrid.getH(), (x, y) -> {
+      if (namesGrid.get(x, y) == null) {
+        return null;
+      }
+      BoundingBox boundingBox = BoundingBox.of(
+          (double) x / (double) namesGrid.getW(),
+          (double) y / (double) namesGrid.getH(),
+          (double) (x + 1) / (double) namesGrid.getW(),
+          (double) (y + 1) / (double) namesGrid.getH()
+      );
+      return new CellState(drawersGrid.get(x, y), boundingBox, w, h);
+    });
+    frames = new ConcurrentSkipListMap<>();
+    freeImages = new ConcurrentLinkedQueue<>();
+    monitor = new Object();
+    encoding = new AtomicBoolean();
+    ownEncodingExecutor = encodingExecutor == null;
+    this.encodingExecutor = ownEncodingExecutor ? Executors.newSingleThreadExecutor(r -> {
+      Thread thread = new Thread(r, "grid-file-writer-encoder");
+      thread.setDaemon(true);
+      return thread;
+    }) : encodingExecutor;
+  }
+
+  private static class CellState {
+    private final Drawer drawer;
+    //clip of the drawer, relative to the tile
+    private final Rectangle2D clip;
+    //pixels covered by the clip
+    private final int minX;
+    private final int minY;
+    private final int maxX;
+    private final int maxY;
+    private BufferedImage tile;
+    private double lastT = Double.NEGATIVE_INFINITY;
+    private volatile int lastFrameNumber = -1;
+    private volatile boolean started;
+    private volatile boolean done;
+
+    private CellState(Drawer drawer, BoundingBox boundingBox, int w, int h) {
+      this.drawer = drawer;
+      //as pixels are assigned to clips by java.awt
+      minX = (int) Math.ceil(boundingBox.min().x() * w - 0.5d);
+      minY = (int) Math.ceil(boundingBox.min().y() * h - 0.5d);
+      maxX = (int) Math.ceil(boundingBox.max().x() * w - 0.5d);
+      maxY = (int) Math.ceil(boundingBox.max().y() * h - 0.5d);
+      clip = new Rectangle2D.Double(
+          boundingBox.min().x() * w - minX,
+          boundingBox.min().y() * h - minY,
+          boundingBox.width() * w,
+          boundingBox.height() * h
+      );
+    }
+
+    //copies the covered region from the frame to the tile, if toTile, or from the tile to the frame
+    private void copy(BufferedImage image, boolean toTile) {
+      byte[] imageData = data(image);
+      byte[] tileData = data(tile);
+      int length = (maxX - minX) * 3;
+      for (int y = minY; y < maxY; y++) {
+        int imageOffset = (y * image.getWidth() + minX) * 3;
+        int tileOffset = (y - minY) * length;
+        if (toTile) {
+          System.arraycopy(imageData, imageOffset, tileData, tileOffset, length);
+        } else {
+          System.arraycopy(tileData, tileOffset, imageData, imageOffset, length);
+        }
+      }
+    }
+
+    //draws on a frame through a tile as large as the covered region, with the coordinates of the tile, such that the
+    //outcome is the same of drawing on the frame clipped to the region, up to the rasterization of edges
+    private void draw(double t, Snapshot snapshot, BufferedImage image) {
+      if (maxX <= minX || maxY <= minY) {
+        return;
+      }
+      if (tile == null) {
+        tile = new BufferedImage(maxX - minX, maxY - minY, BufferedImage.TYPE_3BYTE_BGR);
+      }
+      copy(image, true);
+      Graphics2D g = tile.createGraphics();
+      g.setClip(clip);
+      drawer.draw(t, snapshot, g);
+      g.dispose();
+      copy(image, false);
+    }
   }
 
   public static <S> void save(
@@ -103,7 +245,11 @@ public class GridFileWriter implements Flushable, GridSnapshotListener {
       File file,
       Function<String, Drawer> drawerSupplier
   ) {
-    ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    //one thread per episode, up to the number of processors: episodes starting late miss the frames encoded meanwhile
+    ExecutorService executor = Executors.newFixedThreadPool((int) Math.max(
+        1,
+        Math.min(namedSolutions.count(Objects::nonNull), Runtime.getRuntime().availableProcessors())
+    ));
     GridFileWriter gridFileWriter = new GridFileWriter(
         w, h, startTime, frameRate, encoder, file,
         Grid.create(namedSolutions, p -> p == null ? null : p.name()),
@@ -163,42 +309,204 @@ public class GridFileWriter implements Flushable, GridSnapshotListener {
     save(task, Grid.create(1, 1, new NamedValue<>("solution", s)), w, h, startTime, frameRate, encoder, file);
   }
 
+  //returns the number of the first frame which has not been drawn by all the episodes which are started and not done
+  private int completedFrameNumber() {
+    int n = Integer.MAX_VALUE;
+    for (CellState state : statesGrid.values()) {
+      if (state != null && state.started && !state.done) {
+        n = Math.min(n, state.lastFrameNumber);
+      }
+    }
+    if (n == Integer.MAX_VALUE) {
+      Map.Entry<Integer, BufferedImage> lastFrame = frames.lastEntry();
+      return lastFrame == null ? nextFrameNumber : Math.max(nextFrameNumber, lastFrame.getKey() + 1);
+    }
+    return n;
+  }
+
+  private static byte[] data(BufferedImage image) {
+    return ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+  }
+
+  @Override
+  public void done(int x, int y) {
+    synchronized (monitor) {
+      statesGrid.get(x, y).done = true;
+      monitor.notifyAll();
+    }
+    scheduleEncoding();
+  }
+
+  private void encodeCompletedFrames() {
+    int completedFrameNumber = completedFrameNumber();
+    try {
+      for (int n = nextFrameNumber; n < completedFrameNumber; n++) {
+        BufferedImage image = frame(n);
+        frames.remove(n);
+        if (encodingException == null) {
+          try {
+            if (videoEncoder == null) {
+              L.fine(String.format("Saving video on %s", file));
+              videoEncoder = VideoUtils.encoder(frameRate, file, encoder);
+            }
+            videoEncoder.encode(image);
+          } catch (IOException | RuntimeException e) {
+            L.severe(String.format("Cannot encode frame %d due to %s", n, e));
+            encodingException = (e instanceof IOException) ? (IOException) e : (new IOException(e));
+          }
+        }
+        freeImages.offer(image);
+      }
+    } finally {
+      synchronized (monitor) {
+        nextFrameNumber = Math.max(nextFrameNumber, completedFrameNumber);
+        encoding.set(false);
+        monitor.notifyAll();
+      }
+    }
+    //frames might have been completed meanwhile
+    scheduleEncoding();
+  }
+
   @Override
   public void flush() throws IOException {
-    L.fine(String.format("Saving video on %s", file));
     StopWatch stopWatch = StopWatch.createStarted();
-    VideoUtils.encodeAndSave(images, frameRate, file, encoder);
+    synchronized (monitor) {
+      statesGrid.values().stream().filter(Objects::nonNull).forEach(s -> s.done = true);
+      monitor.notifyAll();
+    }
+    scheduleEncoding();
+    try {
+      synchronized (monitor) {
+        while (encoding.get() || completedFrameNumber() > nextFrameNumber) {
+          monitor.wait();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } finally {
+      if (ownEncodingExecutor) {
+        encodingExecutor.shutdown();
+      }
+    }
+    if (encodingException != null) {
+      //close the encoder anyway, not to leave its process waiting for frames
+      if (videoEncoder != null) {
+        try {
+          videoEncoder.close();
+        } catch (IOException e) {
+          encodingException.addSuppressed(e);
+        }
+      }
+      throw encodingException;
+    }
+    if (videoEncoder == null) {
+      videoEncoder = VideoUtils.encoder(frameRate, file, encoder);
+    }
+    videoEncoder.close();
     long millis = stopWatch.getTime(TimeUnit.MILLISECONDS);
+    //some encoders do not write any file if there are no frames
     L.fine(String.format(
-        "Video saved: %.1fMB written in %.2fs",
-        Files.size(file.toPath()) / 1024f / 1024f,
+        "Video saved: %.1fMB written with %d frames, finalized in %.2fs",
+        (file.exists() ? Files.size(file.toPath()) : 0) / 1024f / 1024f,
+        nextFrameNumber,
         millis / 1000f
     ));
   }
 
+  //returns the image of the provided frame, taking it from the ones already encoded, if any
+  private BufferedImage frame(int frameNumber) {
+    BufferedImage image = frames.get(frameNumber);
+    if (image != null) {
+      return image;
+    }
+    BufferedImage newImage = freeImages.poll();
+    if (newImage == null) {
+      newImage = new BufferedImage(w, h, BufferedImage.TYPE_3BYTE_BGR);
+    } else {
+      Arrays.fill(data(newImage), (byte) 0);
+    }
+    image = frames.putIfAbsent(frameNumber, newImage);
+    if (image != null) {
+      freeImages.offer(newImage);
+      return image;
+    }
+    return newImage;
+  }
+
+  //tells if the episode has to wait for the others before drawing the provided frame
+  private boolean isTooAhead(CellState state, int frameNumber) {
+    if (frameNumber < nextFrameNumber + bufferSize) {
+      return false;
+    }
+    int completedFrameNumber = completedFrameNumber();
+    //completed frames are being encoded: wait for the encoding, which notifies when done, not for the other episodes
+    if (completedFrameNumber > nextFrameNumber) {
+      return true;
+    }
+    //wait for the started episodes which are behind, which do not wait themselves as they are within the buffer
+    return state.lastFrameNumber > completedFrameNumber;
+  }
+
+  int getNOfBufferedFrames() {
+    return frames.size();
+  }
+
+  public int getNOfFrames() {
+    return nextFrameNumber;
+  }
+
   @Override
   public SnapshotListener listener(final int lX, final int lY) {
+    final CellState state = statesGrid.get(lX, lY);
+    state.started = true;
     return (double t, Snapshot snapshot) -> {
-      List<Double> times = timesGrid.get(lX, lY);
-      double lastT = times.isEmpty() ? Double.NEGATIVE_INFINITY : times.get(times.size() - 1);
-      if (t >= startTime && t - lastT >= 1d / frameRate) {
+      if (t >= startTime && t - state.lastT >= 1d / frameRate) {
         int frameNumber = (int) Math.round((t - startTime) * frameRate);
-        int lastFrameNumber = times.isEmpty() ? frameNumber : (int) Math.round((times.get(times.size() - 1) - startTime) * frameRate);
-        synchronized (images) {
-          times.add(t);
-          while (frameNumber >= images.size()) {
-            images.add(new BufferedImage(w, h, BufferedImage.TYPE_3BYTE_BGR));
+        int lastFrameNumber = state.lastFrameNumber < 0 ? frameNumber : state.lastFrameNumber;
+        if (isTooAhead(state, frameNumber)) {
+          synchronized (monitor) {
+            while (isTooAhead(state, frameNumber)) {
+              try {
+                monitor.wait();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+              }
+            }
           }
-          for (int i = lastFrameNumber; i <= frameNumber; i++) {
-            BufferedImage image = images.get(i);
-            Graphics2D g = image.createGraphics();
-            g.setClip(0, 0, image.getWidth(), image.getHeight());
-            drawersGrid.get(lX, lY).draw(t, snapshot, g);
-            g.dispose();
+        }
+        if (state.lastFrameNumber < nextFrameNumber && frameNumber >= nextFrameNumber) {
+          //an episode starting late might not be accounted by the encoding in progress: do not draw on its frames
+          synchronized (monitor) {
+            while (encoding.get()) {
+              try {
+                monitor.wait();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+              }
+            }
           }
         }
+        state.lastT = t;
+        for (int i = Math.max(lastFrameNumber, nextFrameNumber); i <= frameNumber; i++) {
+          state.draw(t, snapshot, frame(i));
+        }
+        synchronized (monitor) {
+          state.lastFrameNumber = frameNumber;
+          monitor.notifyAll();
+        }
+        scheduleEncoding();
       }
     };
   }
 
+  private void scheduleEncoding() {
+    if (completedFrameNumber() > nextFrameNumber && encoding.compareAndSet(false, true)) {
+      encodingExecutor.execute(this::encodeCompletedFrames);
+    }
+  }
+
 }
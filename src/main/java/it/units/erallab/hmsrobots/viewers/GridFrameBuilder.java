@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.viewers;
+
+import it.units.erallab.hmsrobots.core.snapshots.Snapshot;
+import it.units.erallab.hmsrobots.core.snapshots.SnapshotListener;
+import it.units.erallab.hmsrobots.util.Grid;
+import it.units.erallab.hmsrobots.util.RingBuffer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Builds frames, i.e., grids of snapshots taken at the same time, out of the snapshots of the episodes of a grid, one
+ * frame every {@code 1/frameRate} seconds of simulated time. A frame is built when every named cell has a snapshot for
+ * its time, or its episode has not started yet, or its episode is done. Finished cells keep their last snapshot. Hence,
+ * episodes whose queue is full and whose policy is {@link RingBuffer.OverflowPolicy#BLOCK} never wait for episodes
+ * which cannot run because all the threads are taken, nor for episodes which ended earlier.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+class GridFrameBuilder implements GridSnapshotListener, Runnable {
+
+  record TimedSnapshot(double t, Snapshot snapshot) {
+  }
+
+  record Frame(double t, Grid<TimedSnapshot> snapshotGrid) {
+  }
+
+  private static class Cell {
+    private final RingBuffer<TimedSnapshot> queue;
+    private volatile boolean started;
+    private volatile boolean done;
+    private TimedSnapshot lastSnapshot;
+
+    private Cell(RingBuffer<TimedSnapshot> queue) {
+      this.queue = queue;
+    }
+  }
+
+  private final Grid<String> namesGrid;
+  private final double frameRate;
+  private final Grid<Cell> cellGrid;
+  private final RingBuffer<Frame> frameQueue;
+  private volatile Thread builder;
+  private double t;
+
+  GridFrameBuilder(Grid<String> namesGrid, int frameRate, int queueSize, RingBuffer.OverflowPolicy overflowPolicy) {
+    this.namesGrid = namesGrid;
+    this.frameRate = frameRate;
+    cellGrid = Grid.create(
+        namesGrid.getW(),
+        namesGrid.getH(),
+        (x, y) -> new Cell(new RingBuffer<>(queueSize, overflowPolicy))
+    );
+    frameQueue = new RingBuffer<>(frameRate, overflowPolicy);
+    t = 0d;
+  }
+
+  @Override
+  public void done(int x, int y) {
+    cellGrid.get(x, y).done = true;
+    wakeUp();
+  }
+
+  long getDroppedFrames() {
+    return frameQueue.getNOfDropped();
+  }
+
+  long getDroppedSnapshots() {
+    return cellGrid.values().stream().mapToLong(c -> c.queue.getNOfDropped()).sum();
+  }
+
+  RingBuffer<Frame> getFrameQueue() {
+    return frameQueue;
+  }
+
+  int getQueuedSnapshots() {
+    return cellGrid.values().stream().mapToInt(c -> c.queue.size()).sum();
+  }
+
+  @Override
+  public SnapshotListener listener(int x, int y) {
+    final Cell cell = cellGrid.get(x, y);
+    cell.started = true;
+    return (double t, Snapshot snapshot) -> {
+      cell.queue.put(new TimedSnapshot(t, snapshot));
+      wakeUp();
+    };
+  }
+
+  @Override
+  public void run() {
+    builder = Thread.currentThread();
+    while (!Thread.currentThread().isInterrupted()) {
+      //check if ready
+      Grid<TimedSnapshot> snapshotGrid = Grid.create(cellGrid);
+      boolean ready = true;
+      boolean fresh = false;
+      for (Grid.Entry<Cell> entry : cellGrid) {
+        Cell cell = entry.value();
+        //read done before the queue, since the last snapshot is put before done is set
+        boolean done = cell.done;
+        TimedSnapshot snapshot;
+        while ((snapshot = cell.queue.peek()) != null) {
+          if (snapshot.t < t) {
+            cell.lastSnapshot = cell.queue.poll();
+          } else {
+            break;
+          }
+        }
+        if (snapshot != null) {
+          fresh = true;
+        } else if (done) {
+          snapshot = cell.lastSnapshot;
+        } else if (cell.started && namesGrid.get(entry.key().x(), entry.key().y()) != null) {
+          ready = false;
+        }
+        snapshotGrid.set(entry.key().x(), entry.key().y(), snapshot);
+      }
+      if (ready && fresh) {
+        //render asynchronously
+        frameQueue.put(new Frame(t, snapshotGrid));
+        //update time
+        t = t + 1d / frameRate;
+      } else {
+        //wait for a new snapshot
+        LockSupport.parkNanos(this, Math.round(TimeUnit.SECONDS.toNanos(1) / frameRate));
+      }
+    }
+    builder = null;
+  }
+
+  private void wakeUp() {
+    Thread thread = builder;
+    if (thread != null) {
+      LockSupport.unpark(thread);
+    }
+  }
+
+}
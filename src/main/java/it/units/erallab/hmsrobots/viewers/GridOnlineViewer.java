@@ -18,10 +18,10 @@ package it.units.erallab.hmsrobots.viewers;
 
 import com.google.common.base.Stopwatch;
 import it.units.erallab.hmsrobots.core.geometry.BoundingBox;
-import it.units.erallab.hmsrobots.core.snapshots.Snapshot;
 import it.units.erallab.hmsrobots.core.snapshots.SnapshotListener;
 import it.units.erallab.hmsrobots.tasks.Task;
 import it.units.erallab.hmsrobots.util.Grid;
+import it.units.erallab.hmsrobots.util.RingBuffer;
 import it.units.erallab.hmsrobots.viewers.drawers.Drawer;
 import it.units.erallab.hmsrobots.viewers.drawers.Drawers;
 import org.apache.commons.lang3.tuple.Pair;
@@ -29,9 +29,7 @@ import org.apache.commons.lang3.tuple.Pair;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferStrategy;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -46,15 +44,31 @@ public class GridOnlineViewer extends JFrame implements GridSnapshotListener {
   private final static int FRAME_RATE = 20;
   private final static int INIT_WIN_WIDTH = 1000;
   private final static int INIT_WIN_HEIGHT = 600;
+  private final static int DEFAULT_QUEUE_SIZE = 256;
+  private final static RingBuffer.OverflowPolicy DEFAULT_OVERFLOW_POLICY = RingBuffer.OverflowPolicy.DROP_OLDEST;
   private final Grid<Drawer> drawersGrid;
-  private final Queue<Grid<TimedSnapshot>> gridQueue;
-  private final Grid<Queue<TimedSnapshot>> queueGrid;
+  private final GridFrameBuilder frameBuilder;
   private final Canvas canvas;
   private final ScheduledExecutorService executor;
-  private final boolean running;
-  private double t;
 
   public GridOnlineViewer(Grid<String> namesGrid, Grid<Drawer> drawersGrid, ScheduledExecutorService executor) {
+    this(namesGrid, drawersGrid, executor, DEFAULT_QUEUE_SIZE, DEFAULT_OVERFLOW_POLICY);
+  }
+
+  /**
+   * Builds a viewer in which the snapshots of each episode are kept in a queue of size {@code queueSize}, until the
+   * frame they belong to is built, and built frames are kept in a queue of size {@link #FRAME_RATE}, until they are
+   * rendered. When a queue is full, the oldest item is dropped or, with {@link RingBuffer.OverflowPolicy#BLOCK}, the
+   * episode waits, and the simulation is hence paced by the rendering, i.e., it runs in real time. Frames are not kept
+   * waiting by episodes which have not started yet or which are done.
+   */
+  public GridOnlineViewer(
+      Grid<String> namesGrid,
+      Grid<Drawer> drawersGrid,
+      ScheduledExecutorService executor,
+      int queueSize,
+      RingBuffer.OverflowPolicy overflowPolicy
+  ) {
     super("World viewer");
     if (namesGrid.getW() != drawersGrid.getW() || namesGrid.getH() != drawersGrid.getH()) {
       throw new IllegalArgumentException("Names grid and drawers grid should have the same size");
@@ -74,14 +88,7 @@ public class GridOnlineViewer extends JFrame implements GridSnapshotListener {
     );
     this.executor = executor;
     //create things
-    gridQueue = new LinkedList<>();
-    queueGrid = Grid.create(namesGrid);
-    //create drawer
-    for (int x = 0; x < namesGrid.getW(); x++) {
-      for (int y = 0; y < namesGrid.getH(); y++) {
-        queueGrid.set(x, y, new LinkedList<>());
-      }
-    }
+    frameBuilder = new GridFrameBuilder(namesGrid, FRAME_RATE, queueSize, overflowPolicy);
     //create/set ui components
     setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
     Dimension dimension = new Dimension(INIT_WIN_WIDTH, INIT_WIN_HEIGHT);
@@ -92,57 +99,8 @@ public class GridOnlineViewer extends JFrame implements GridSnapshotListener {
     getContentPane().add(canvas, BorderLayout.CENTER);
     //pack
     pack();
-    //init time and grid
-    t = 0d;
-    running = true;
     //start consumer of single frames
-    executor.submit(() -> {
-          while (running) {
-            //check if ready
-            Grid<TimedSnapshot> snapshotGrid = Grid.create(queueGrid);
-            synchronized (queueGrid) {
-              for (Grid.Entry<Queue<TimedSnapshot>> entry : queueGrid) {
-                TimedSnapshot snapshot;
-                while ((snapshot = entry.value().peek()) != null) {
-                  if (snapshot.t < t) {
-                    entry.value().poll();
-                  } else {
-                    break;
-                  }
-                }
-                snapshotGrid.set(entry.key().x(), entry.key().y(), snapshot);
-              }
-            }
-            boolean ready = true;
-            for (Grid.Entry<Queue<TimedSnapshot>> entry : queueGrid) {
-              ready = ready && ((namesGrid.get(entry.key().x(), entry.key().y()) == null) || (snapshotGrid.get(
-                  entry.key().x(),
-                  entry.key().y()
-              ) != null));
-            }
-            if (ready) {
-              //update time
-              t = t + 1d / FRAME_RATE;
-              //render asynchronously
-              synchronized (gridQueue) {
-                gridQueue.offer(Grid.copy(snapshotGrid));
-                gridQueue.notifyAll();
-              }
-            } else {
-              synchronized (queueGrid) {
-                try {
-                  queueGrid.wait();
-                } catch (InterruptedException ex) {
-                  //ignore
-                }
-              }
-            }
-          }
-        }
-    );
-  }
-
-  private record TimedSnapshot(double t, Snapshot snapshot) {
+    executor.submit(frameBuilder);
   }
 
   public static <S> void run(
@@ -184,24 +142,40 @@ public class GridOnlineViewer extends JFrame implements GridSnapshotListener {
     run(task, Grid.create(1, 1, new NamedValue<>("", s)));
   }
 
+  @Override
+  public void done(int x, int y) {
+    frameBuilder.done(x, y);
+  }
+
+  public long getDroppedFrames() {
+    return frameBuilder.getDroppedFrames();
+  }
+
+  public long getDroppedSnapshots() {
+    return frameBuilder.getDroppedSnapshots();
+  }
+
+  public int getQueuedFrames() {
+    return frameBuilder.getFrameQueue().size();
+  }
+
+  public int getQueuedSnapshots() {
+    return frameBuilder.getQueuedSnapshots();
+  }
+
   @Override
   public SnapshotListener listener(final int lX, final int lY) {
-    return (double t, Snapshot snapshot) -> {
-      synchronized (queueGrid) {
-        queueGrid.get(lX, lY).offer(new TimedSnapshot(t, snapshot));
-        queueGrid.notifyAll();
-      }
-    };
+    return frameBuilder.listener(lX, lY);
   }
 
-  private void renderFrame(Grid<TimedSnapshot> localSnapshotGrid) {
+  private void renderFrame(Grid<GridFrameBuilder.TimedSnapshot> localSnapshotGrid) {
     //get graphics
     Graphics2D g = (Graphics2D) canvas.getBufferStrategy().getDrawGraphics();
     g.setClip(0, 0, canvas.getWidth(), canvas.getHeight());
     //iterate over snapshot grid
-    for (Grid.Entry<TimedSnapshot> entry : localSnapshotGrid) {
+    for (Grid.Entry<GridFrameBuilder.TimedSnapshot> entry : localSnapshotGrid) {
       if (entry.value() != null) {
-        drawersGrid.get(entry.key().x(), entry.key().y()).draw(entry.value().t, entry.value().snapshot, g);
+        drawersGrid.get(entry.key().x(), entry.key().y()).draw(entry.value().t(), entry.value().snapshot(), g);
       }
     }
     //dispose and encode
@@ -227,35 +201,23 @@ public class GridOnlineViewer extends JFrame implements GridSnapshotListener {
           stopwatch.start();
         }
         double currentTime = (double) stopwatch.elapsed(TimeUnit.MILLISECONDS) / 1000d;
-        Grid<TimedSnapshot> localSnapshotGrid = null;
-        synchronized (gridQueue) {
-          while (!gridQueue.isEmpty()) {
-            localSnapshotGrid = gridQueue.poll();
-            if (gridQueue.isEmpty() || (gridQueue.peek().get(0, 0).t > currentTime)) {
-              break;
-            }
+        RingBuffer<GridFrameBuilder.Frame> frameQueue = frameBuilder.getFrameQueue();
+        GridFrameBuilder.Frame frame = frameQueue.poll();
+        while (frame != null) {
+          GridFrameBuilder.Frame nextFrame = frameQueue.peek();
+          if (nextFrame == null || nextFrame.t() > currentTime) {
+            break;
           }
+          frame = frameQueue.poll();
         }
-        if (localSnapshotGrid != null) {
+        if (frame != null) {
           try {
-            renderFrame(localSnapshotGrid);
+            renderFrame(frame.snapshotGrid());
           } catch (Throwable t) {
             t.printStackTrace();
             System.exit(0);
           }
-          synchronized (gridQueue) {
-            gridQueue.notifyAll();
-          }
-        } else {
-          synchronized (gridQueue) {
-            try {
-              gridQueue.wait();
-            } catch (InterruptedException ex) {
-              //ignore
-            }
-          }
         }
-
       }
     };
     executor.scheduleAtFixedRate(
@@ -23,6 +23,13 @@ import it.units.erallab.hmsrobots.core.snapshots.SnapshotListener;
  */
 public interface GridSnapshotListener {
 
+  /**
+   * Tells that the episode in position {@code x,y} ended, hence the corresponding listener will not be invoked
+   * anymore.
+   */
+  default void done(int x, int y) {
+  }
+
   SnapshotListener listener(int x, int y);
 
 }
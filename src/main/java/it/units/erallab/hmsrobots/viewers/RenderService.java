@@ -0,0 +1,276 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.viewers;
+
+import it.units.erallab.hmsrobots.core.snapshots.Snapshot;
+import it.units.erallab.hmsrobots.core.snapshots.SnapshotListener;
+import it.units.erallab.hmsrobots.tasks.Task;
+import it.units.erallab.hmsrobots.util.Grid;
+import it.units.erallab.hmsrobots.viewers.drawers.Drawer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Renders videos of episodes to files without a display, i.e., only on offscreen images. Each job is simulated on a
+ * thread of a simulation executor and its frames are encoded, while the episode runs, through an encoding executor:
+ * both executors are shared among jobs and kept alive across invocations. Since each job keeps its own encoder open
+ * (i.e., an {@code ffmpeg} process or an output channel) from its start to its end, a job starts only when less than
+ * {@code nOfEncodingThreads} jobs are running, hence the number of encoders open at the same time is bounded by the
+ * number of encoding threads too, and the jobs exceeding it wait on their simulation thread. Since each {@link
+ * GridFileWriter} keeps a bounded number of frames, the memory occupation depends on the number of threads, not on the
+ * number of jobs.
+ * <p>
+ * The file of a job which fails, or which is cancelled, is deleted.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class RenderService implements AutoCloseable {
+
+  private static final Logger L = Logger.getLogger(RenderService.class.getName());
+
+  private final int w;
+  private final int h;
+  private final double startTime;
+  private final double frameRate;
+  private final VideoUtils.EncoderFacility encoder;
+  private final ExecutorService simulationExecutor;
+  private final ExecutorService encodingExecutor;
+  //bounds the encoders open at the same time
+  private final Semaphore encoderPermits;
+  private final AtomicLong nOfFrames;
+  private final AtomicLong busyNanos;
+
+  public RenderService(
+      int w,
+      int h,
+      double startTime,
+      double frameRate,
+      VideoUtils.EncoderFacility encoder,
+      int nOfSimulationThreads,
+      int nOfEncodingThreads
+  ) {
+    this.w = w;
+    this.h = h;
+    this.startTime = startTime;
+    this.frameRate = frameRate;
+    this.encoder = encoder;
+    simulationExecutor = Executors.newFixedThreadPool(nOfSimulationThreads);
+    encodingExecutor = Executors.newFixedThreadPool(nOfEncodingThreads);
+    encoderPermits = new Semaphore(nOfEncodingThreads);
+    nOfFrames = new AtomicLong();
+    busyNanos = new AtomicLong();
+  }
+
+  public RenderService(int w, int h, double startTime, double frameRate, VideoUtils.EncoderFacility encoder) {
+    this(
+        w,
+        h,
+        startTime,
+        frameRate,
+        encoder,
+        Runtime.getRuntime().availableProcessors(),
+        Runtime.getRuntime().availableProcessors()
+    );
+  }
+
+  public record Job<S>(Task<S, ?> task, S solution, Drawer drawer, File file) {}
+
+  public record Report(File file, int nOfFrames, double elapsedTime) {
+    public double framesPerSecond() {
+      return nOfFrames / elapsedTime;
+    }
+  }
+
+  /**
+   * Stops accepting jobs and waits for the submitted ones to end, since their encoding needs the encoding executor
+   * until their files are closed.
+   */
+  @Override
+  public void close() {
+    simulationExecutor.shutdown();
+    try {
+      while (!simulationExecutor.awaitTermination(1, TimeUnit.MINUTES)) {
+        L.fine("Waiting for the rendering jobs to end");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      simulationExecutor.shutdownNow();
+    }
+    encodingExecutor.shutdown();
+  }
+
+  /**
+   * Returns the number of frames rendered by the service per second spent rendering them, i.e., the throughput of a
+   * single job, or 0 if no job has been rendered yet.
+   */
+  public double getFramesPerSecond() {
+    long nanos = busyNanos.get();
+    return nanos == 0 ? 0d : (nOfFrames.get() / (nanos / 1e9d));
+  }
+
+  public long getNOfFrames() {
+    return nOfFrames.get();
+  }
+
+  private <S> Report render(Job<S> job) {
+    try {
+      encoderPermits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CancellationException(String.format("Rendering of %s cancelled", job.file()));
+    }
+    try {
+      return renderWithPermit(job);
+    } finally {
+      encoderPermits.release();
+    }
+  }
+
+  private <S> Report renderWithPermit(Job<S> job) {
+    long startNanos = System.nanoTime();
+    GridFileWriter writer = new GridFileWriter(
+        w, h, startTime, frameRate, GridFileWriter.DEFAULT_BUFFER_SIZE, encoder, job.file(),
+        Grid.create(1, 1, job.file().getName()),
+        Grid.create(1, 1, job.drawer()),
+        encodingExecutor
+    );
+    SnapshotListener writerListener = writer.listener(0, 0);
+    try {
+      //stop at the next snapshot if the job has been cancelled
+      job.task().apply(job.solution(), (double t, Snapshot snapshot) -> {
+        if (Thread.currentThread().isInterrupted()) {
+          throw new CancellationException(String.format("Rendering of %s cancelled", job.file()));
+        }
+        writerListener.listen(t, snapshot);
+      });
+    } catch (RuntimeException e) {
+      //flush anyway, such that the encoder is closed and does not keep the file, or its process, open
+      writer.done(0, 0);
+      //the flush would not wait for the encoding if the job has been cancelled through an interrupt
+      boolean interrupted = Thread.interrupted();
+      try {
+        writer.flush();
+      } catch (IOException flushException) {
+        e.addSuppressed(flushException);
+      } finally {
+        if (interrupted) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      //do not leave a truncated video
+      try {
+        Files.deleteIfExists(job.file().toPath());
+      } catch (IOException deleteException) {
+        e.addSuppressed(deleteException);
+      }
+      throw e;
+    }
+    writer.done(0, 0);
+    try {
+      writer.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    long elapsedNanos = System.nanoTime() - startNanos;
+    nOfFrames.addAndGet(writer.getNOfFrames());
+    busyNanos.addAndGet(elapsedNanos);
+    Report report = new Report(job.file(), writer.getNOfFrames(), elapsedNanos / 1e9d);
+    L.fine(String.format(
+        "Rendered %s: %d frames in %.2fs (%.1f frames/s)",
+        report.file(),
+        report.nOfFrames(),
+        report.elapsedTime(),
+        report.framesPerSecond()
+    ));
+    return report;
+  }
+
+  /**
+   * Renders all the provided jobs and returns the reports in the same order of the jobs. Jobs are rendered
+   * concurrently, up to the number of simulation threads and of encoding threads. If a job fails, the other jobs are
+   * cancelled and the failure is rethrown.
+   */
+  public List<Report> renderAll(List<? extends Job<?>> jobs) {
+    long startNanos = System.nanoTime();
+    List<CompletableFuture<Report>> futures = jobs.stream().map(this::submit).toList();
+    List<Report> reports = new ArrayList<>(futures.size());
+    for (int i = 0; i < futures.size(); i++) {
+      try {
+        reports.add(futures.get(i).get());
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        futures.forEach(f -> f.cancel(true));
+        throw new IllegalStateException("Interrupted while waiting for videos", ex);
+      } catch (ExecutionException ex) {
+        L.severe(String.format("Cannot render video %s due to %s", jobs.get(i).file(), ex.getCause()));
+        futures.forEach(f -> f.cancel(true));
+        if (ex.getCause() instanceof RuntimeException runtimeException) {
+          throw runtimeException;
+        }
+        throw new IllegalStateException(String.format("Cannot render video %s", jobs.get(i).file()), ex.getCause());
+      }
+    }
+    double elapsedTime = (System.nanoTime() - startNanos) / 1e9d;
+    int nOfFrames = reports.stream().mapToInt(Report::nOfFrames).sum();
+    L.info(String.format(
+        "Rendered %d videos: %d frames in %.2fs (%.1f frames/s)",
+        reports.size(),
+        nOfFrames,
+        elapsedTime,
+        nOfFrames / elapsedTime
+    ));
+    return reports;
+  }
+
+  /**
+   * Queues the provided job, which will be rendered as soon as a simulation thread is available. Cancelling the
+   * returned future stops the job at its next snapshot, if it is running.
+   */
+  public <S> CompletableFuture<Report> submit(Job<S> job) {
+    CompletableFuture<Report> future = new CompletableFuture<>();
+    //a completable future does not interrupt its task when cancelled, hence the task is submitted on its own
+    Future<?> task = simulationExecutor.submit(() -> {
+      try {
+        future.complete(render(job));
+      } catch (Throwable t) {
+        future.completeExceptionally(t);
+      }
+    });
+    future.whenComplete((report, throwable) -> {
+      if (future.isCancelled()) {
+        task.cancel(true);
+      }
+    });
+    return future;
+  }
+
+}
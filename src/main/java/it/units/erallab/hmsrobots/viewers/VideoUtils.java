@@ -7,17 +7,19 @@ import org.jcodec.common.io.SeekableByteChannel;
 import org.jcodec.common.model.Rational;
 import org.jcodec.scale.AWTUtil;
 
-import javax.imageio.ImageIO;
+import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.util.ArrayList;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
-import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -27,109 +29,211 @@ public class VideoUtils {
 
   private static final EncoderFacility DEFAULT_ENCODER = EncoderFacility.JCODEC;
   private static final Logger L = Logger.getLogger(VideoUtils.class.getName());
+  private static final String FFMPEG_EXECUTABLE = "ffmpeg";
 
   private VideoUtils() {
   }
 
   public enum EncoderFacility {JCODEC, FFMPEG_LARGE, FFMPEG_SMALL}
 
-  public static void encodeAndSave(List<BufferedImage> images, double frameRate, File file) throws IOException {
-    encodeAndSave(images, frameRate, file, DEFAULT_ENCODER);
+  /**
+   * A video being encoded frame by frame: each frame is encoded when it is provided, and the provided image can be
+   * reused by the caller afterwards. The video is finalized on {@link #close()}.
+   */
+  public interface VideoEncoder extends Closeable {
+    void encode(BufferedImage image) throws IOException;
   }
 
-  public static void encodeAndSave(
-      List<BufferedImage> images,
-      double frameRate,
-      File file,
-      EncoderFacility encoder
-  ) throws IOException {
-    switch (encoder) {
-      case JCODEC -> encodeAndSaveWithJCodec(images, frameRate, file);
-      case FFMPEG_LARGE -> encodeAndSaveWithFFMpeg(images, frameRate, file, 18);
-      case FFMPEG_SMALL -> encodeAndSaveWithFFMpeg(images, frameRate, file, 30);
+  private static class JCodecEncoder implements VideoEncoder {
+    private final SeekableByteChannel channel;
+    private final SequenceEncoder encoder;
+
+    public JCodecEncoder(double frameRate, File file) throws IOException {
+      channel = NIOUtils.writableChannel(file);
+      encoder = new SequenceEncoder(
+          channel,
+          Rational.R((int) Math.round(frameRate), 1),
+          Format.MOV,
+          org.jcodec.common.Codec.H264,
+          null
+      );
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        encoder.finish();
+      } finally {
+        NIOUtils.closeQuietly(channel);
+      }
+    }
+
+    @Override
+    public void encode(BufferedImage image) throws IOException {
+      encoder.encodeNativeFrame(AWTUtil.fromBufferedImageRGB(image));
     }
   }
 
-  private static void encodeAndSaveWithFFMpeg(
-      List<BufferedImage> images,
-      double frameRate,
-      File file,
-      int compression
-  ) throws IOException {
-    //save all files
-    String workingDirName = file.getAbsoluteFile().getParentFile().getPath();
-    String imagesDirName = workingDirName + File.separator + "imgs." + System.currentTimeMillis();
-    Files.createDirectories(Path.of(imagesDirName));
-    List<Path> toDeletePaths = new ArrayList<>();
-    L.fine(String.format("Saving %d files in %s", images.size(), imagesDirName));
-    for (int i = 0; i < images.size(); i++) {
-      File imageFile = new File(imagesDirName + File.separator + String.format("frame%06d", i) + ".jpg");
-      ImageIO.write(images.get(i), "jpg", imageFile);
-      toDeletePaths.add(imageFile.toPath());
+  /**
+   * Streams the frames, as raw {@code bgr24} pixels, to the standard input of an {@code ffmpeg} process, which is
+   * started when the first frame is provided, since the frame size is then known. Writes block while the process is
+   * not consuming its input, hence frames are not accumulated. The standard error of the process, where {@code ffmpeg}
+   * writes its log, is drained by a separate thread and its last lines are reported if the process fails.
+   */
+  static class FFMpegEncoder implements VideoEncoder {
+    private static final int N_OF_LOG_LINES = 20;
+    private final String executable;
+    private final double frameRate;
+    private final File file;
+    private final int compression;
+    private final Deque<String> logLines;
+    private Process process;
+    private OutputStream outputStream;
+    private Thread drainer;
+    private BufferedImage bgrImage;
+    private int w;
+    private int h;
+
+    FFMpegEncoder(String executable, double frameRate, File file, int compression) {
+      this.executable = executable;
+      this.frameRate = frameRate;
+      this.file = file;
+      this.compression = compression;
+      logLines = new ArrayDeque<>();
     }
-    toDeletePaths.add(Path.of(imagesDirName));
-    //invoke ffmpeg
-    String command = String.format(
-        "ffmpeg -y -r %d -i %s/frame%%06d.jpg -vcodec libx264 -crf %d -pix_fmt yuv420p %s",
-        (int) Math.round(frameRate),
-        imagesDirName,
-        compression,
-        file.getPath()
-    );
-    L.fine(String.format("Running: %s", command));
-    ProcessBuilder pb = new ProcessBuilder(command.split(" "));
-    pb.directory(new File(workingDirName));
-    StringBuilder sb = new StringBuilder();
-    try {
-      Process process = pb.start();
-      BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-      String line;
-      while ((line = reader.readLine()) != null) {
-        sb.append(line).append("\n");
-      }
-      reader.close();
-      int exitVal = process.waitFor();
-      if (exitVal < 0) {
-        throw new IOException(String.format("Unexpected exit val: %d. Full output is:%n%s", exitVal, sb.toString()));
+
+    @Override
+    public void close() throws IOException {
+      if (process == null) {
+        L.warning(String.format("No frames to encode in %s", file));
+        return;
       }
-    } catch (IOException | InterruptedException e) {
-      throw (e instanceof IOException) ? (IOException) e : (new IOException(e));
-    } finally {
-      //delete all files
-      L.fine(String.format("Deleting %d paths", toDeletePaths.size()));
-      for (Path path : toDeletePaths) {
+      try {
         try {
-          Files.delete(path);
+          outputStream.close();
         } catch (IOException e) {
-          L.log(Level.WARNING, String.format("Cannot delete %s", path), e);
+          throw failure("Cannot close the input of ffmpeg", e);
+        }
+        int exitVal = process.waitFor();
+        drainer.join();
+        if (exitVal != 0) {
+          throw failure(String.format("Unexpected exit val: %d", exitVal), null);
+        }
+      } catch (InterruptedException e) {
+        process.destroy();
+        Thread.currentThread().interrupt();
+        throw new IOException(e);
+      }
+    }
+
+    @Override
+    public void encode(BufferedImage image) throws IOException {
+      if (process == null) {
+        start(image.getWidth(), image.getHeight());
+      }
+      if (image.getWidth() != w || image.getHeight() != h) {
+        throw new IllegalArgumentException(String.format(
+            "Wrong frame size: %dx%d expected, %dx%d found",
+            w,
+            h,
+            image.getWidth(),
+            image.getHeight()
+        ));
+      }
+      if (image.getType() != BufferedImage.TYPE_3BYTE_BGR) {
+        if (bgrImage == null) {
+          bgrImage = new BufferedImage(w, h, BufferedImage.TYPE_3BYTE_BGR);
         }
+        Graphics2D g = bgrImage.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        image = bgrImage;
+      }
+      try {
+        outputStream.write(((DataBufferByte) image.getRaster().getDataBuffer()).getData());
+      } catch (IOException e) {
+        throw failure("Cannot write frame to ffmpeg", e);
       }
     }
+
+    private IOException failure(String message, IOException cause) {
+      try {
+        drainer.join(1000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      synchronized (logLines) {
+        return new IOException(
+            String.format("%s. Last output lines are:%n%s", message, String.join(String.format("%n"), logLines)),
+            cause
+        );
+      }
+    }
+
+    private void start(int w, int h) throws IOException {
+      this.w = w;
+      this.h = h;
+      List<String> command = List.of(
+          executable,
+          "-y",
+          "-f", "rawvideo",
+          "-pix_fmt", "bgr24",
+          "-s", String.format("%dx%d", w, h),
+          "-r", Integer.toString((int) Math.round(frameRate)),
+          "-i", "-",
+          "-vcodec", "libx264",
+          "-crf", Integer.toString(compression),
+          "-pix_fmt", "yuv420p",
+          file.getPath()
+      );
+      L.fine(String.format("Running: %s", String.join(" ", command)));
+      ProcessBuilder pb = new ProcessBuilder(command);
+      pb.redirectErrorStream(true);
+      process = pb.start();
+      outputStream = new BufferedOutputStream(process.getOutputStream(), w * h * 3);
+      drainer = new Thread(() -> {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+          String line;
+          while ((line = reader.readLine()) != null) {
+            synchronized (logLines) {
+              logLines.addLast(line);
+              if (logLines.size() > N_OF_LOG_LINES) {
+                logLines.removeFirst();
+              }
+            }
+          }
+        } catch (IOException e) {
+          //ignore: the process ended
+        }
+      }, "ffmpeg-drainer");
+      drainer.setDaemon(true);
+      drainer.start();
+    }
+  }
+
+  public static VideoEncoder encoder(double frameRate, File file, EncoderFacility encoder) throws IOException {
+    return switch (encoder) {
+      case JCODEC -> new JCodecEncoder(frameRate, file);
+      case FFMPEG_LARGE -> new FFMpegEncoder(FFMPEG_EXECUTABLE, frameRate, file, 18);
+      case FFMPEG_SMALL -> new FFMpegEncoder(FFMPEG_EXECUTABLE, frameRate, file, 30);
+    };
   }
 
-  private static void encodeAndSaveWithJCodec(
+  public static void encodeAndSave(List<BufferedImage> images, double frameRate, File file) throws IOException {
+    encodeAndSave(images, frameRate, file, DEFAULT_ENCODER);
+  }
+
+  public static void encodeAndSave(
       List<BufferedImage> images,
       double frameRate,
-      File file
+      File file,
+      EncoderFacility encoder
   ) throws IOException {
-    SeekableByteChannel channel = NIOUtils.writableChannel(file);
-    SequenceEncoder encoder = new SequenceEncoder(
-        channel,
-        Rational.R((int) Math.round(frameRate), 1),
-        Format.MOV,
-        org.jcodec.common.Codec.H264,
-        null
-    );
-    //encode
-    try {
+    try (VideoEncoder videoEncoder = encoder(frameRate, file, encoder)) {
       for (BufferedImage image : images) {
-        encoder.encodeNativeFrame(AWTUtil.fromBufferedImageRGB(image));
+        videoEncoder.encode(image);
       }
-    } catch (IOException ex) {
-      L.severe(String.format("Cannot encode image due to %s", ex));
     }
-    encoder.finish();
-    NIOUtils.closeQuietly(channel);
   }
 
 }
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.core.controllers;
+
+import it.units.erallab.hmsrobots.core.objects.Voxel;
+import it.units.erallab.hmsrobots.core.sensors.Constant;
+import it.units.erallab.hmsrobots.util.Grid;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class DistributedSensingTest {
+
+  private static final int SIGNALS = 1;
+
+  //a function which is not a multi layer perceptron, hence it is never evaluated as a batch
+  private record Wrapper(MultiLayerPerceptron inner) implements TimedRealFunction {
+    @Override
+    public double[] apply(double t, double[] input) {
+      return inner.apply(t, input);
+    }
+
+    @Override
+    public int getInputDimension() {
+      return inner.getInputDimension();
+    }
+
+    @Override
+    public int getOutputDimension() {
+      return inner.getOutputDimension();
+    }
+  }
+
+  /**
+   * Test of computeControlSignals method, of class DistributedSensing, with equal but distinct functions whose params
+   * are then set.
+   */
+  @Test
+  public void testComputeControlSignalsWithEqualFunctions() {
+    System.out.println("computeControlSignalsWithEqualFunctions");
+    Grid<Voxel> voxels = Grid.create(2, 2, (x, y) -> new Voxel(List.of(new Constant(x, y, 0.5d))));
+    voxels.values().forEach(v -> v.getSensors().forEach(s -> s.act(0d)));
+    int nOfInputs = DistributedSensing.nOfInputs(voxels.get(0, 0), SIGNALS);
+    int nOfOutputs = DistributedSensing.nOfOutputs(voxels.get(0, 0), SIGNALS);
+    Random random = new Random(1);
+    double[] params = new double[MultiLayerPerceptron.countWeights(nOfInputs, new int[]{3}, nOfOutputs)];
+    for (int i = 0; i < params.length; i++) {
+      params[i] = random.nextGaussian();
+    }
+    Grid<MultiLayerPerceptron> mlps = Grid.create(2, 2, (x, y) -> new MultiLayerPerceptron(
+        MultiLayerPerceptron.ActivationFunction.TANH,
+        nOfInputs,
+        new int[]{3},
+        nOfOutputs,
+        params
+    ));
+    Grid<MultiLayerPerceptron> referenceMlps = Grid.create(mlps, mlp -> new MultiLayerPerceptron(
+        MultiLayerPerceptron.ActivationFunction.TANH,
+        nOfInputs,
+        new int[]{3},
+        nOfOutputs,
+        params
+    ));
+    DistributedSensing controller = new DistributedSensing(
+        SIGNALS,
+        Grid.create(voxels, v -> nOfInputs),
+        Grid.create(voxels, v -> nOfOutputs),
+        Grid.create(mlps, mlp -> mlp)
+    );
+    DistributedSensing reference = new DistributedSensing(
+        SIGNALS,
+        Grid.create(voxels, v -> nOfInputs),
+        Grid.create(voxels, v -> nOfOutputs),
+        Grid.create(referenceMlps, Wrapper::new)
+    );
+    double[] otherParams = params.clone();
+    otherParams[0] = otherParams[0] + 1d;
+    for (int step = 0; step < 4; step++) {
+      //set different params to one of the functions
+      if (step == 2) {
+        mlps.get(1, 0).setParams(otherParams);
+        referenceMlps.get(1, 0).setParams(otherParams);
+      }
+      assertArrayEquals(
+          reference.computeControlSignals(step, voxels).toGrid().values().stream()
+              .mapToDouble(Double::doubleValue).toArray(),
+          controller.computeControlSignals(step, voxels).toGrid().values().stream()
+              .mapToDouble(Double::doubleValue).toArray()
+      );
+      //the layer values of each function are the ones of its own voxel
+      mlps.forEach((x, y, mlp) -> assertArrayEquals(
+          referenceMlps.get(x, y).getActivationValues(),
+          mlp.getActivationValues()
+      ));
+    }
+  }
+
+  /**
+   * Test of deprecated getLastSignals and getLastSignalsGrid methods, of class DistributedSensing.
+   */
+  @Test
+  @SuppressWarnings("deprecation")
+  public void testGetLastSignals() {
+    System.out.println("getLastSignals");
+    Grid<Voxel> voxels = Grid.create(2, 1, (x, y) -> new Voxel(List.of(new Constant(0.5d))));
+    voxels.values().forEach(v -> v.getSensors().forEach(s -> s.act(0d)));
+    int nOfInputs = DistributedSensing.nOfInputs(voxels.get(0, 0), SIGNALS);
+    int nOfOutputs = DistributedSensing.nOfOutputs(voxels.get(0, 0), SIGNALS);
+    //each voxel emits 10x+1, 10x+2, 10x+3, 10x+4 towards N, E, S, W
+    DistributedSensing controller = new DistributedSensing(
+        SIGNALS,
+        Grid.create(voxels, v -> nOfInputs),
+        Grid.create(voxels, v -> nOfOutputs),
+        Grid.create(2, 1, (x, y) -> RealFunction.build(
+            (double[] in) -> new double[]{0d, 10 * x + 1, 10 * x + 2, 10 * x + 3, 10 * x + 4},
+            nOfInputs,
+            nOfOutputs
+        ))
+    );
+    controller.computeControlSignals(0d, voxels);
+    assertArrayEquals(new double[]{11d, 12d, 13d, 14d}, controller.getLastSignalsGrid().get(1, 0));
+    assertArrayEquals(new double[]{0d, 14d, 0d, 0d}, controller.getLastSignals(0, 0));
+    assertArrayEquals(new double[]{0d, 0d, 0d, 2d}, controller.getLastSignals(1, 0));
+  }
+
+}
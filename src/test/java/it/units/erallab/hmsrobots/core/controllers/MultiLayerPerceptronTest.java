@@ -18,6 +18,8 @@ package it.units.erallab.hmsrobots.core.controllers;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 
 /**
@@ -64,6 +66,98 @@ public class MultiLayerPerceptronTest {
     assertArrayEquals(expResult, result);
   }
 
+  /**
+   * Test of apply method, of class MultiLayerPerceptron, against a plain layer-by-layer computation.
+   */
+  @Test
+  public void testApplyLayerByLayer() {
+    System.out.println("applyLayerByLayer");
+    Random random = new Random(1);
+    for (MultiLayerPerceptron.ActivationFunction activationFunction : MultiLayerPerceptron.ActivationFunction.values()) {
+      MultiLayerPerceptron instance = new MultiLayerPerceptron(activationFunction, 5, new int[]{7, 3}, 2);
+      double[] weights = new double[instance.getParams().length];
+      for (int i = 0; i < weights.length; i++) {
+        weights[i] = random.nextGaussian();
+      }
+      instance.setParams(weights);
+      double[][][] unflatWeights = MultiLayerPerceptron.unflat(weights, instance.getNeurons());
+      for (int n = 0; n < 10; n++) {
+        double[] input = new double[5];
+        double[] values = new double[5];
+        for (int i = 0; i < input.length; i++) {
+          input[i] = random.nextGaussian();
+          values[i] = activationFunction.apply(input[i]);
+        }
+        for (double[][] layerWeights : unflatWeights) {
+          double[] previousValues = values;
+          values = new double[layerWeights.length];
+          for (int j = 0; j < values.length; j++) {
+            double sum = layerWeights[j][0];
+            for (int k = 1; k < layerWeights[j].length; k++) {
+              sum = sum + previousValues[k - 1] * layerWeights[j][k];
+            }
+            values[j] = activationFunction.apply(sum);
+          }
+        }
+        assertArrayEquals(values, instance.apply(input));
+      }
+    }
+  }
+
+  /**
+   * Test of apply method with many inputs, of class MultiLayerPerceptron.
+   */
+  @Test
+  public void testApplyBatch() {
+    System.out.println("applyBatch");
+    Random random = new Random(1);
+    MultiLayerPerceptron instance = new MultiLayerPerceptron(
+        MultiLayerPerceptron.ActivationFunction.TANH,
+        6,
+        new int[]{4},
+        3
+    );
+    double[] weights = new double[instance.getParams().length];
+    for (int i = 0; i < weights.length; i++) {
+      weights[i] = random.nextGaussian();
+    }
+    instance.setParams(weights);
+    for (int nOfInputs : new int[]{1, 7, 3}) {
+      double[][] inputs = new double[nOfInputs][6];
+      for (double[] input : inputs) {
+        for (int i = 0; i < input.length; i++) {
+          input[i] = random.nextGaussian();
+        }
+      }
+      double[][] outputs = instance.apply(inputs, new double[nOfInputs][3]);
+      for (int s = 0; s < nOfInputs; s++) {
+        assertArrayEquals(instance.apply(inputs[s]), outputs[s]);
+      }
+    }
+  }
+
+  /**
+   * Test of getWeights method, of class MultiLayerPerceptron.
+   */
+  @Test
+  public void testGetWeights() {
+    System.out.println("getWeights");
+    double[] input = new double[]{2};
+    double[][][] weights = MultiLayerPerceptron.unflat(new double[]{1, 0, 1, 2, 1, -1, 1}, new int[]{1, 2, 1});
+    MultiLayerPerceptron instance = new MultiLayerPerceptron(
+        MultiLayerPerceptron.ActivationFunction.RELU,
+        weights,
+        new int[]{1, 2, 1}
+    );
+    //changing the provided or the returned weights does not change the function
+    weights[0][0][0] = 10;
+    instance.getWeights()[1][0][0] = 10;
+    assertArrayEquals(new double[]{5}, instance.apply(input));
+    instance.setParams(new double[]{0, 1, 0, 1, 1, 1, 1});
+    assertArrayEquals(new double[]{1, 1, 1}, instance.getWeights()[1][0]);
+    assertArrayEquals(new double[]{5}, instance.apply(input));
+  }
+
   /**
    * Test of flat method, of class MultiLayerPerceptron.
    */
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.core.controllers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class PruningMultiLayerPerceptronTest {
+
+  /**
+   * Test of apply methods, of class PruningMultiLayerPerceptron, after pruning.
+   */
+  @Test
+  public void testApplyAfterPruning() {
+    System.out.println("applyAfterPruning");
+    Random random = new Random(1);
+    PruningMultiLayerPerceptron instance = new PruningMultiLayerPerceptron(
+        MultiLayerPerceptron.ActivationFunction.TANH,
+        5,
+        new int[]{4},
+        3,
+        1d,
+        PruningMultiLayerPerceptron.Context.NETWORK,
+        PruningMultiLayerPerceptron.Criterion.WEIGHT,
+        0.5d
+    );
+    double[] weights = new double[instance.getParams().length];
+    for (int i = 0; i < weights.length; i++) {
+      weights[i] = random.nextGaussian();
+    }
+    instance.setParams(weights);
+    MultiLayerPerceptron unpruned = new MultiLayerPerceptron(
+        MultiLayerPerceptron.ActivationFunction.TANH,
+        5,
+        new int[]{4},
+        3,
+        weights
+    );
+    double[][] inputs = new double[4][5];
+    for (double[] input : inputs) {
+      for (int i = 0; i < input.length; i++) {
+        input[i] = random.nextGaussian();
+      }
+    }
+    instance.apply(1d, inputs[0]);
+    //the pruned network, as a plain one
+    MultiLayerPerceptron pruned = new MultiLayerPerceptron(
+        MultiLayerPerceptron.ActivationFunction.TANH,
+        instance.getWeights(),
+        instance.getNeurons()
+    );
+    assertFalse(Arrays.equals(unpruned.apply(inputs[0]), pruned.apply(inputs[0])));
+    double[][] batchOutputs = instance.apply(inputs, new double[inputs.length][3]);
+    for (int s = 0; s < inputs.length; s++) {
+      double[] expected = pruned.apply(inputs[s]);
+      assertArrayEquals(expected, instance.apply(0d, inputs[s]));
+      assertArrayEquals(expected, instance.apply(inputs[s]));
+      assertArrayEquals(expected, instance.apply(inputs[s], new double[3]));
+      assertArrayEquals(expected, batchOutputs[s]);
+    }
+  }
+
+}
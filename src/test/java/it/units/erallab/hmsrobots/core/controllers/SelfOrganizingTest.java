@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.core.controllers;
+
+import it.units.erallab.hmsrobots.core.objects.Voxel;
+import it.units.erallab.hmsrobots.core.sensors.Constant;
+import it.units.erallab.hmsrobots.util.Grid;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class SelfOrganizingTest {
+
+  /**
+   * Test of control method, of class SelfOrganizing, when edges and neurons are changed between steps.
+   */
+  @Test
+  public void testControlAfterChanges() {
+    System.out.println("controlAfterChanges");
+    Voxel voxel = new Voxel(List.of(new Constant(1d)));
+    voxel.getSensors().forEach(s -> s.act(0d));
+    Grid<Voxel> voxels = Grid.create(1, 1, voxel);
+    SelfOrganizing controller = new SelfOrganizing(Map.of());
+    SelfOrganizing.Neuron sensing = controller.addSensingNeuron(0, 0, 0);
+    SelfOrganizing.Neuron actuator = controller.addActuatorNeuron(0, 0);
+    controller.addEdge(sensing.getIndex(), actuator.getIndex(), 1d, 0d);
+    controller.control(0d, voxels);
+    controller.control(0d, voxels);
+    assertEquals(Math.tanh(Math.tanh(1d)), actuator.send(), 1e-12);
+    //change the parameters of the edge through the neurons map
+    controller.getNeuronsMap().get(actuator.getIndex()).getIngoingEdges().get(0).setParams(List.of(0.5d, 0.1d));
+    controller.control(0d, voxels);
+    assertEquals(Math.tanh(Math.tanh(1d) * 0.5d + 0.1d), actuator.send(), 1e-12);
+    //add an edge directly to the neuron
+    actuator.addIngoingEdge(new SelfOrganizing.Edge(actuator.getIndex(), actuator.getIndex(), 1d, 0d));
+    double previous = actuator.send();
+    controller.control(0d, voxels);
+    assertEquals(Math.tanh(Math.tanh(1d) * 0.5d + 0.1d + previous), actuator.send(), 1e-12);
+  }
+
+  /**
+   * Test of control method, of class SelfOrganizing, against the step-by-step evaluation of the neurons.
+   */
+  @Test
+  public void testControlAgainstForward() {
+    System.out.println("controlAgainstForward");
+    Random random = new Random(1);
+    Grid<Voxel> voxels = Grid.create(3, 2, (x, y) -> new Voxel(List.of(new Constant(x / 3d, y / 2d))));
+    voxels.values().forEach(v -> v.getSensors().forEach(s -> s.act(0d)));
+    SelfOrganizing controller = new SelfOrganizing(Map.of());
+    for (Grid.Entry<Voxel> entry : voxels) {
+      controller.addSensingNeuron(entry.key().x(), entry.key().y(), 0);
+      controller.addSensingNeuron(entry.key().x(), entry.key().y(), 1);
+      controller.addHiddenNeuron(MultiLayerPerceptron.ActivationFunction.SIN, entry.key().x(), entry.key().y());
+      controller.addActuatorNeuron(entry.key().x(), entry.key().y());
+    }
+    int nOfNeurons = controller.getNeurons().size();
+    for (SelfOrganizing.Neuron target : controller.getNeurons()) {
+      if (target.isSensing()) {
+        continue;
+      }
+      for (int source = 0; source < nOfNeurons; source++) {
+        if (random.nextDouble() < 0.3) {
+          controller.addEdge(source, target.getIndex(), random.nextGaussian(), random.nextGaussian());
+        }
+      }
+    }
+    SelfOrganizing reference = new SelfOrganizing(controller);
+    for (int step = 0; step < 20; step++) {
+      controller.control(step, voxels);
+      reference.getNeurons().forEach(n -> n.forward(voxels, reference));
+      reference.getNeurons().forEach(SelfOrganizing.Neuron::advance);
+      for (SelfOrganizing.Neuron neuron : reference.getNeurons()) {
+        assertEquals(neuron.send(), controller.getNeuronsMap().get(neuron.getIndex()).send(), 1e-12);
+      }
+    }
+  }
+
+  /**
+   * Test of control method, of class SelfOrganizing, with a neuron of a class which overrides the forward method.
+   */
+  @Test
+  public void testControlWithOtherNeuron() {
+    System.out.println("controlWithOtherNeuron");
+    Voxel voxel = new Voxel(List.of(new Constant(1d)));
+    voxel.getSensors().forEach(s -> s.act(0d));
+    Grid<Voxel> voxels = Grid.create(1, 1, voxel);
+    SelfOrganizing controller = new SelfOrganizing(Map.of());
+    SelfOrganizing.Neuron actuator = controller.addActuatorNeuron(0, 0);
+    //a hidden neuron which always sends 0.5
+    SelfOrganizing.Neuron constant = new SelfOrganizing.HiddenNeuron(
+        1,
+        0,
+        0,
+        MultiLayerPerceptron.ActivationFunction.IDENTITY
+    ) {
+      @Override
+      public void forward(Grid<Voxel> voxels, SelfOrganizing controller) {
+        message = 0.5d;
+      }
+    };
+    controller.getNeuronsMap().put(constant.getIndex(), constant);
+    controller.addEdge(constant.getIndex(), actuator.getIndex(), 1d, 0d);
+    controller.control(0d, voxels);
+    assertEquals(0.5d, constant.send(), 1e-12);
+    controller.control(0d, voxels);
+    assertEquals(Math.tanh(0.5d), actuator.send(), 1e-12);
+  }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.core.objects;
+
+import it.units.erallab.hmsrobots.core.controllers.CentralizedSensing;
+import it.units.erallab.hmsrobots.core.controllers.MultiLayerPerceptron;
+import it.units.erallab.hmsrobots.tasks.locomotion.Locomotion;
+import it.units.erallab.hmsrobots.tasks.locomotion.Outcome;
+import it.units.erallab.hmsrobots.util.Grid;
+import it.units.erallab.hmsrobots.util.RobotUtils;
+import org.dyn4j.dynamics.Settings;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class BreakableVoxelTest {
+
+  private static Robot robot(Grid<Voxel> body) {
+    CentralizedSensing controller = new CentralizedSensing(body);
+    MultiLayerPerceptron mlp = new MultiLayerPerceptron(
+        MultiLayerPerceptron.ActivationFunction.TANH,
+        controller.nOfInputs(),
+        new int[0],
+        controller.nOfOutputs()
+    );
+    Random random = new Random(1);
+    mlp.setParams(IntStream.range(0, mlp.getParams().length).mapToDouble(i -> random.nextDouble() * 2 - 1).toArray());
+    controller.setFunction(mlp);
+    return new Robot(controller, body);
+  }
+
+  private static void assertRuns(Robot robot) {
+    Outcome outcome = new Locomotion(5, Locomotion.createTerrain("flat"), new Settings()).apply(robot);
+    assertTrue(Double.isFinite(outcome.getDistance()));
+  }
+
+  /**
+   * Test of robots with breakable voxels, as built by {@link RobotUtils#buildRobotTransformation}.
+   */
+  @Test
+  public void testTransformedRobots() {
+    System.out.println("transformedRobots");
+    for (String name : new String[]{"broken-0.5-1", "breakable-time-1/0.5-1/0-1"}) {
+      Grid<Voxel> body = RobotUtils.buildSensorizingFunction("uniform-a+t+r-0").apply(RobotUtils.buildShape("biped-4x3"));
+      assertRuns(RobotUtils.buildRobotTransformation(name, new Random(1)).apply(robot(body)));
+    }
+  }
+
+  /**
+   * Test of robots with voxels whose sensors break.
+   */
+  @Test
+  public void testSensorMalfunctions() {
+    System.out.println("sensorMalfunctions");
+    Grid<Voxel> body = RobotUtils.buildSensorizingFunction("uniform-a+t+r-0").apply(RobotUtils.buildShape("biped-4x3"));
+    Random random = new Random(1);
+    Grid<Voxel> breakableBody = Grid.create(body, v -> v == null ? null : new BreakableVoxel(
+        v.getSensors(),
+        random.nextInt(),
+        Map.of(BreakableVoxel.ComponentType.SENSORS, EnumSet.of(
+            BreakableVoxel.MalfunctionType.ZERO,
+            BreakableVoxel.MalfunctionType.FROZEN,
+            BreakableVoxel.MalfunctionType.RANDOM
+        )),
+        Map.of(BreakableVoxel.MalfunctionTrigger.TIME, 0.5d),
+        0.5d
+    ));
+    assertRuns(robot(breakableBody));
+  }
+
+}
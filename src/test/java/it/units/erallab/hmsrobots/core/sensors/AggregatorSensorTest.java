@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.core.sensors;
+
+import it.units.erallab.hmsrobots.util.DoubleRange;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class AggregatorSensorTest {
+
+  private static final double INTERVAL = 0.5d;
+  private static final int N_OF_PHASES = 20;
+
+  //a sensor whose readings are set from outside
+  private static class ScriptedSensor extends AbstractSensor {
+    private double[] nextReadings;
+
+    private ScriptedSensor(int dimension) {
+      super(Arrays.stream(new double[dimension]).mapToObj(d -> DoubleRange.of(-1d, 1d)).toArray(DoubleRange[]::new));
+    }
+
+    @Override
+    protected double[] sense(double t) {
+      return nextReadings;
+    }
+  }
+
+  //the window of readings, kept naively as lists
+  private static class ReferenceWindow {
+    private final List<Double> times = new ArrayList<>();
+    private final List<double[]> values = new ArrayList<>();
+
+    private void add(double t, double[] readings) {
+      if (!values.isEmpty() && values.get(values.size() - 1).length != readings.length) {
+        times.clear();
+        values.clear();
+      } else if (!times.isEmpty() && times.get(times.size() - 1) == t) {
+        times.remove(times.size() - 1);
+        values.remove(values.size() - 1);
+      }
+      times.add(t);
+      values.add(readings);
+      while (times.size() > 1 && times.get(0) < t - INTERVAL) {
+        times.remove(0);
+        values.remove(0);
+      }
+    }
+
+    private double[] average() {
+      double[] sums = new double[values.get(0).length];
+      for (double[] readings : values) {
+        for (int i = 0; i < sums.length; i++) {
+          sums[i] = sums[i] + readings[i];
+        }
+      }
+      for (int i = 0; i < sums.length; i++) {
+        sums[i] = sums[i] / (double) values.size();
+      }
+      return sums;
+    }
+
+    private double[] dynamicNormalization(double[] currentReadings) {
+      double[] mins = new double[currentReadings.length];
+      double[] maxs = new double[currentReadings.length];
+      Arrays.fill(mins, Double.POSITIVE_INFINITY);
+      Arrays.fill(maxs, Double.NEGATIVE_INFINITY);
+      for (double[] readings : values) {
+        for (int i = 0; i < currentReadings.length; i++) {
+          mins[i] = Math.min(mins[i], readings[i]);
+          maxs[i] = Math.max(maxs[i], readings[i]);
+        }
+      }
+      double[] normalized = new double[currentReadings.length];
+      for (int i = 0; i < normalized.length; i++) {
+        normalized[i] = Math.min(Math.max((currentReadings[i] - mins[i]) / (maxs[i] - mins[i]), 0d), 1d);
+      }
+      return normalized;
+    }
+
+    private double[] trend(int nOfDomains) {
+      double localInterval = times.get(times.size() - 1) - times.get(0);
+      if (localInterval == 0) {
+        return new double[nOfDomains];
+      }
+      double[] firsts = values.get(0);
+      double[] lasts = values.get(values.size() - 1);
+      double[] changes = new double[firsts.length];
+      for (int i = 0; i < changes.length; i++) {
+        changes[i] = (lasts[i] - firsts[i]) / localInterval;
+      }
+      return changes;
+    }
+  }
+
+  //feeds random readings, alternating short windows, which make the ring buffer wrap, and long ones, which make it grow
+  @SuppressWarnings("deprecation")
+  private static void check(
+      Function<Sensor, AggregatorSensor> builder,
+      Function<ReferenceWindow, double[]> referenceAggregator,
+      double delta
+  ) {
+    Random random = new Random(1);
+    int dimension = 3;
+    ScriptedSensor scriptedSensor = new ScriptedSensor(dimension);
+    AggregatorSensor sensor = builder.apply(scriptedSensor);
+    ReferenceWindow window = new ReferenceWindow();
+    double t = 0d;
+    for (int phase = 0; phase < N_OF_PHASES; phase++) {
+      double dT = (phase % 2 == 0) ? INTERVAL / (2 + random.nextInt(3)) : INTERVAL / (20 + random.nextInt(100));
+      int nOfSteps = 50 + random.nextInt(200);
+      for (int step = 0; step < nOfSteps; step++) {
+        boolean sameTime = random.nextDouble() < 0.05;
+        if (random.nextDouble() < 0.005) {
+          dimension = 7 - dimension;
+          sameTime = random.nextBoolean();
+        }
+        if (!sameTime) {
+          t = t + dT;
+        }
+        double[] readings = new double[dimension];
+        for (int i = 0; i < readings.length; i++) {
+          //discrete values make ties in mins and maxs
+          readings[i] = random.nextBoolean() ? (random.nextInt(3) - 1) : (random.nextDouble() * 2d - 1d);
+        }
+        scriptedSensor.nextReadings = readings;
+        window.add(t, readings);
+        sensor.act(t);
+        double[] expected = referenceAggregator.apply(window);
+        if (delta == 0d) {
+          assertArrayEquals(expected, sensor.getReadings());
+        } else {
+          assertArrayEquals(expected, sensor.getReadings(), delta);
+        }
+        TreeMap<Double, double[]> windowReadings = sensor.readings();
+        assertEquals(window.times, List.copyOf(windowReadings.keySet()));
+        assertArrayEquals(window.values.toArray(double[][]::new), windowReadings.values().toArray(double[][]::new));
+      }
+    }
+  }
+
+  /**
+   * Test of sense method, of class Average.
+   */
+  @Test
+  public void testAverage() {
+    System.out.println("average");
+    check(s -> new Average(s, INTERVAL), ReferenceWindow::average, 3e-11);
+  }
+
+  /**
+   * Test of sense method, of class DynamicNormalization.
+   */
+  @Test
+  public void testDynamicNormalization() {
+    System.out.println("dynamicNormalization");
+    check(
+        s -> new DynamicNormalization(s, INTERVAL),
+        w -> w.dynamicNormalization(w.values.get(w.values.size() - 1)),
+        0d
+    );
+  }
+
+  /**
+   * Test of sense method, of class Trend.
+   */
+  @Test
+  public void testTrend() {
+    System.out.println("trend");
+    check(s -> new Trend(s, INTERVAL), w -> w.trend(3), 0d);
+  }
+
+}
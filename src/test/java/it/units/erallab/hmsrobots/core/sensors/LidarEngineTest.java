@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.core.sensors;
+
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.dynamics.BodyFixture;
+import org.dyn4j.geometry.Convex;
+import org.dyn4j.geometry.Geometry;
+import org.dyn4j.geometry.MassType;
+import org.dyn4j.geometry.Ray;
+import org.dyn4j.geometry.Vector2;
+import org.dyn4j.world.DetectFilter;
+import org.dyn4j.world.World;
+import org.dyn4j.world.result.RaycastResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class LidarEngineTest {
+
+  private static final DetectFilter<Body, BodyFixture> FILTER = new DetectFilter<>(true, true, null);
+  private static final double RAY_LENGTH = 10d;
+  private static final int N_OF_ORIGINS = 200;
+  private static final int N_OF_RAYS = 16;
+
+  private static Body body(Convex convex, double x, double y, MassType massType) {
+    Body body = new Body();
+    body.addFixture(convex);
+    body.setMass(massType);
+    body.translate(x, y);
+    return body;
+  }
+
+  //compares the distances computed by the engine with the ones computed by the world, on random rays
+  private static void assertSameDistances(World<Body> world, LidarEngine engine, Random random) {
+    double[] directions = new double[N_OF_RAYS];
+    double[] distances = new double[N_OF_RAYS];
+    for (int i = 0; i < N_OF_ORIGINS; i++) {
+      double ox = random.nextDouble() * 20d - 10d;
+      double oy = random.nextDouble() * 10d;
+      for (int j = 0; j < directions.length; j++) {
+        directions[j] = random.nextDouble() * 2d * Math.PI;
+      }
+      engine.cast(ox, oy, directions, RAY_LENGTH, distances);
+      for (int j = 0; j < directions.length; j++) {
+        RaycastResult<Body, BodyFixture> result = world.raycastClosest(
+            new Ray(new Vector2(ox, oy), directions[j]),
+            RAY_LENGTH,
+            FILTER
+        );
+        double expected = result == null ? RAY_LENGTH : result.getRaycast().getDistance();
+        assertEquals(expected, distances[j], 1e-6);
+      }
+    }
+  }
+
+  /**
+   * Test of cast method, of class LidarEngine, also after static bodies are moved and replaced.
+   */
+  @Test
+  public void testCast() {
+    System.out.println("cast");
+    World<Body> world = new World<>();
+    world.setGravity(World.ZERO_GRAVITY);
+    world.addBody(body(Geometry.createRectangle(20d, 1d), 0d, -0.5d, MassType.INFINITE));
+    Body step = body(Geometry.createRectangle(2d, 1d), -4d, 0.5d, MassType.INFINITE);
+    world.addBody(step);
+    Body ramp = body(Geometry.createTriangle(new Vector2(0, 0), new Vector2(3, 0), new Vector2(3, 2)), 3d, 0d,
+        MassType.INFINITE);
+    world.addBody(ramp);
+    world.addBody(body(Geometry.createSquare(1d), 0d, 5d, MassType.NORMAL));
+    world.addBody(body(Geometry.createCircle(0.5d), -6d, 4d, MassType.NORMAL));
+    LidarEngine engine = LidarEngine.of(world, FILTER);
+    Random random = new Random(1);
+    assertSameDistances(world, engine, random);
+    //move a static body, which requires invalidating the engine
+    step.translate(1.5d, 0.3d);
+    engine.invalidate();
+    world.step(1);
+    assertSameDistances(world, engine, random);
+    //replace a static body, keeping the number of bodies
+    world.removeBody(ramp);
+    world.addBody(body(Geometry.createRectangle(1d, 3d), 7d, 1.5d, MassType.INFINITE));
+    world.step(1);
+    assertSameDistances(world, engine, random);
+  }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.tasks;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class BatchEvaluatorTest {
+
+  /**
+   * Test of evaluate method, of class BatchEvaluator.
+   */
+  @Test
+  public void testEvaluate() {
+    System.out.println("evaluate");
+    List<Integer> solutions = IntStream.range(0, 100).boxed().toList();
+    Task<Integer, Integer> task = (s, listener) -> {
+      try {
+        Thread.sleep((100 - s) % 7);
+      } catch (InterruptedException e) {
+        //ignore
+      }
+      return s * s;
+    };
+    AtomicInteger counter = new AtomicInteger();
+    try (BatchEvaluator evaluator = new BatchEvaluator(4)) {
+      for (int generation = 0; generation < 2; generation++) {
+        List<Integer> results = evaluator.evaluate(task, solutions, c -> {
+          assertEquals(c.solution() * c.solution(), c.result());
+          counter.incrementAndGet();
+        });
+        assertEquals(solutions.stream().map(s -> s * s).toList(), results);
+      }
+    }
+    assertEquals(2 * solutions.size(), counter.get());
+  }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.tasks.locomotion;
+
+import it.units.erallab.hmsrobots.core.controllers.CentralizedSensing;
+import it.units.erallab.hmsrobots.core.controllers.MultiLayerPerceptron;
+import it.units.erallab.hmsrobots.core.objects.Robot;
+import it.units.erallab.hmsrobots.core.objects.Voxel;
+import it.units.erallab.hmsrobots.util.Grid;
+import it.units.erallab.hmsrobots.util.RobotUtils;
+import org.dyn4j.dynamics.Settings;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class ColumnarOutcomeTest {
+
+  private static void assertSameOutcome(Outcome expected, Outcome actual) {
+    assertEquals(expected.getTime(), actual.getTime());
+    assertEquals(expected.getDistance(), actual.getDistance());
+    assertEquals(expected.getComputationTime(), actual.getComputationTime());
+    assertEquals(expected.getControlEnergy(), actual.getControlEnergy());
+    assertEquals(expected.getAreaRatioEnergy(), actual.getAreaRatioEnergy());
+    assertEquals(expected.getAveragePosture(8), actual.getAveragePosture(8));
+    assertEquals(expected.getCenterAngleSpectrum(0, 5, 8), actual.getCenterAngleSpectrum(0, 5, 8));
+    assertEquals(expected.getCenterXPositionSpectrum(0, 5, 8), actual.getCenterXPositionSpectrum(0, 5, 8));
+    assertEquals(expected.getCenterYVelocitySpectrum(0, 5, 8), actual.getCenterYVelocitySpectrum(0, 5, 8));
+    assertEquals(expected.getFootprintsSpectra(4, 0, 5, 8), actual.getFootprintsSpectra(4, 0, 5, 8));
+  }
+
+  /**
+   * Test of accessors, of class ColumnarOutcome.
+   */
+  @Test
+  public void testAccessors() {
+    System.out.println("accessors");
+    Grid<Voxel> body = RobotUtils.buildSensorizingFunction("uniform-a+t+r-0").apply(RobotUtils.buildShape("biped-4x3"));
+    CentralizedSensing controller = new CentralizedSensing(body);
+    MultiLayerPerceptron mlp = new MultiLayerPerceptron(
+        MultiLayerPerceptron.ActivationFunction.TANH,
+        controller.nOfInputs(),
+        new int[0],
+        controller.nOfOutputs()
+    );
+    Random random = new Random(1);
+    mlp.setParams(IntStream.range(0, mlp.getParams().length).mapToDouble(i -> random.nextDouble() * 2 - 1).toArray());
+    controller.setFunction(mlp);
+    Outcome columnarOutcome = new Locomotion(5, Locomotion.createTerrain("hilly-1-10-0"), new Settings()).apply(new Robot(
+        controller,
+        body
+    ));
+    Outcome outcome = new Outcome(columnarOutcome.getObservations());
+    assertSameOutcome(outcome, columnarOutcome);
+    assertSameOutcome(outcome.subOutcome(1, 3), columnarOutcome.subOutcome(1, 3));
+    assertSameOutcome(outcome, new ColumnarOutcome(outcome.getObservations()));
+  }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.util;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class RingBufferTest {
+
+  private static final long N_OF_ITEMS = 200_000;
+
+  //puts N_OF_ITEMS items, and then -1, from another thread and returns the items polled by the current thread
+  private static List<Long> transfer(RingBuffer<Long> ringBuffer) throws InterruptedException {
+    Thread producer = new Thread(() -> {
+      for (long i = 0; i < N_OF_ITEMS; i++) {
+        ringBuffer.put(i);
+      }
+      ringBuffer.put(-1L);
+    });
+    producer.start();
+    List<Long> items = new ArrayList<>();
+    while (true) {
+      Long peeked = ringBuffer.peek();
+      Long item = ringBuffer.poll();
+      if (item == null) {
+        Thread.onSpinWait();
+        continue;
+      }
+      //the peeked item might have been dropped meanwhile, but it cannot be newer than the polled one
+      if (peeked != null && peeked != -1L && item != -1L) {
+        assertTrue(peeked <= item, String.format("Peeked item %d is newer than polled item %d", peeked, item));
+      }
+      if (item == -1L) {
+        break;
+      }
+      items.add(item);
+    }
+    producer.join();
+    return items;
+  }
+
+  /**
+   * Test of put and poll methods with the BLOCK policy, of class RingBuffer.
+   */
+  @ParameterizedTest
+  @ValueSource(ints = {1, 3, 64})
+  public void testBlock(int capacity) throws InterruptedException {
+    System.out.println("block");
+    RingBuffer<Long> ringBuffer = new RingBuffer<>(capacity, RingBuffer.OverflowPolicy.BLOCK);
+    List<Long> items = transfer(ringBuffer);
+    assertEquals(N_OF_ITEMS, items.size());
+    for (int i = 0; i < items.size(); i++) {
+      assertEquals(i, items.get(i));
+    }
+    assertEquals(0, ringBuffer.getNOfDropped());
+    assertEquals(0, ringBuffer.size());
+  }
+
+  /**
+   * Test of put and poll methods with the DROP_OLDEST policy, of class RingBuffer.
+   */
+  @ParameterizedTest
+  @ValueSource(ints = {1, 3, 64})
+  public void testDropOldest(int capacity) throws InterruptedException {
+    System.out.println("dropOldest");
+    RingBuffer<Long> ringBuffer = new RingBuffer<>(capacity, RingBuffer.OverflowPolicy.DROP_OLDEST);
+    List<Long> items = transfer(ringBuffer);
+    for (int i = 1; i < items.size(); i++) {
+      assertTrue(items.get(i - 1) < items.get(i));
+    }
+    assertEquals(N_OF_ITEMS, items.size() + ringBuffer.getNOfDropped());
+    assertEquals(0, ringBuffer.size());
+  }
+
+  /**
+   * Test of put method with the DROP_OLDEST policy on a full buffer, of class RingBuffer.
+   */
+  @ParameterizedTest
+  @ValueSource(ints = {1, 3, 64})
+  public void testDropOldestWhenFull(int capacity) {
+    System.out.println("dropOldestWhenFull");
+    RingBuffer<Integer> ringBuffer = new RingBuffer<>(capacity, RingBuffer.OverflowPolicy.DROP_OLDEST);
+    for (int i = 0; i < 2 * capacity; i++) {
+      assertTrue(ringBuffer.put(i));
+    }
+    assertEquals(capacity, ringBuffer.size());
+    assertEquals(capacity, ringBuffer.getNOfDropped());
+    for (int i = capacity; i < 2 * capacity; i++) {
+      assertEquals(i, ringBuffer.peek());
+      assertEquals(i, ringBuffer.poll());
+    }
+    assertNull(ringBuffer.poll());
+  }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.viewers;
+
+import it.units.erallab.hmsrobots.core.snapshots.Snapshot;
+import it.units.erallab.hmsrobots.tasks.Task;
+import it.units.erallab.hmsrobots.util.Grid;
+import it.units.erallab.hmsrobots.viewers.drawers.Drawer;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class GridFileWriterTest {
+
+  private static final int FRAME_RATE = 20;
+  private static final int BUFFER_SIZE = 5;
+  private static final int N_OF_THREADS = 2;
+  private static final double DT = 0.01d;
+
+  /**
+   * Test of listener method, of class GridFileWriter, with more episodes than threads.
+   */
+  @Test
+  public void testMoreCellsThanThreads(@TempDir Path dir) {
+    System.out.println("moreCellsThanThreads");
+    //episodes last 1 to 8 seconds, and one cell is empty
+    Grid<NamedValue<Integer>> namedSolutions = Grid.create(
+        3,
+        3,
+        (x, y) -> (x == 1 && y == 1) ? null : new NamedValue<>(x + "," + y, 1 + x + 3 * y - (x + 3 * y > 4 ? 1 : 0))
+    );
+    File file = dir.resolve("video.mov").toFile();
+    GridFileWriter writer = new GridFileWriter(
+        64,
+        48,
+        0,
+        FRAME_RATE,
+        BUFFER_SIZE,
+        VideoUtils.EncoderFacility.JCODEC,
+        file,
+        Grid.create(namedSolutions, p -> p == null ? null : p.name()),
+        Grid.create(namedSolutions, p -> Drawer.clear())
+    );
+    AtomicInteger maxBufferedFrames = new AtomicInteger();
+    Task<Integer, Integer> task = (duration, listener) -> {
+      for (int i = 0; i * DT <= duration; i++) {
+        listener.listen(i * DT, new Snapshot(null, null));
+        maxBufferedFrames.accumulateAndGet(writer.getNOfBufferedFrames(), Math::max);
+      }
+      return duration;
+    };
+    ExecutorService executor = Executors.newFixedThreadPool(N_OF_THREADS);
+    assertTimeoutPreemptively(Duration.ofSeconds(30), () -> new GridEpisodeRunner<>(
+        Grid.create(namedSolutions, s -> Pair.of(s, task)),
+        writer,
+        executor
+    ).run());
+    executor.shutdown();
+    assertEquals(8 * FRAME_RATE + 1, writer.getNOfFrames());
+    assertTrue(file.length() > 0);
+    //episodes starting late do not make the frames pile up: at most, a buffer is being encoded and one is being drawn
+    assertTrue(maxBufferedFrames.get() <= 2 * BUFFER_SIZE);
+  }
+
+  /**
+   * Test of flush method, of class GridFileWriter, with an encoder which does not write any file without frames.
+   */
+  @Test
+  public void testFlushWithoutFrames(@TempDir Path dir) throws IOException {
+    System.out.println("flushWithoutFrames");
+    File file = dir.resolve("video.mp4").toFile();
+    GridFileWriter writer = new GridFileWriter(
+        64,
+        48,
+        0,
+        FRAME_RATE,
+        VideoUtils.EncoderFacility.FFMPEG_SMALL,
+        file,
+        Grid.create(1, 1, "empty"),
+        Grid.create(1, 1, Drawer.clear())
+    );
+    writer.listener(0, 0);
+    writer.done(0, 0);
+    writer.flush();
+    assertEquals(0, writer.getNOfFrames());
+    assertFalse(file.exists());
+  }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.viewers;
+
+import it.units.erallab.hmsrobots.tasks.Task;
+import it.units.erallab.hmsrobots.util.Grid;
+import it.units.erallab.hmsrobots.util.RingBuffer;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class GridFrameBuilderTest {
+
+  private static final int FRAME_RATE = 20;
+  private static final int N_OF_THREADS = 2;
+  private static final double DT = 0.01d;
+
+  /**
+   * Test of run method, of class GridFrameBuilder, with more episodes than threads and episodes of different duration.
+   */
+  @ParameterizedTest
+  @EnumSource(RingBuffer.OverflowPolicy.class)
+  public void testMoreCellsThanThreads(RingBuffer.OverflowPolicy overflowPolicy) {
+    System.out.println("moreCellsThanThreads");
+    //episodes last 1 to 8 seconds, and one cell is empty
+    Grid<NamedValue<Integer>> namedSolutions = Grid.create(
+        3,
+        3,
+        (x, y) -> (x == 1 && y == 1) ? null : new NamedValue<>(x + "," + y, 1 + x + 3 * y - (x + 3 * y > 4 ? 1 : 0))
+    );
+    Task<Integer, Integer> task = (duration, listener) -> {
+      for (int i = 0; i * DT <= duration; i++) {
+        listener.listen(i * DT, null);
+      }
+      return duration;
+    };
+    GridFrameBuilder frameBuilder = new GridFrameBuilder(
+        Grid.create(namedSolutions, p -> p == null ? null : p.name()),
+        FRAME_RATE,
+        4,
+        overflowPolicy
+    );
+    List<GridFrameBuilder.Frame> frames = new ArrayList<>();
+    Thread builder = new Thread(frameBuilder);
+    Thread renderer = new Thread(() -> {
+      while (!Thread.currentThread().isInterrupted()) {
+        GridFrameBuilder.Frame frame = frameBuilder.getFrameQueue().poll();
+        if (frame != null) {
+          frames.add(frame);
+        } else {
+          Thread.onSpinWait();
+        }
+      }
+    });
+    ExecutorService executor = Executors.newFixedThreadPool(N_OF_THREADS);
+    builder.start();
+    renderer.start();
+    assertTimeoutPreemptively(Duration.ofSeconds(30), () -> new GridEpisodeRunner<>(
+        Grid.create(namedSolutions, s -> Pair.of(s, task)),
+        frameBuilder,
+        executor
+    ).run());
+    executor.shutdown();
+    assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+      while (frameBuilder.getQueuedSnapshots() > 0 || frameBuilder.getFrameQueue().size() > 0) {
+        Thread.sleep(10);
+      }
+    });
+    builder.interrupt();
+    renderer.interrupt();
+    assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+      builder.join();
+      renderer.join();
+    });
+    assertFalse(frames.isEmpty());
+    for (int i = 1; i < frames.size(); i++) {
+      assertTrue(frames.get(i - 1).t() < frames.get(i).t());
+    }
+    //finished episodes keep their last snapshot
+    GridFrameBuilder.Frame lastFrame = frames.get(frames.size() - 1);
+    namedSolutions.forEach((x, y, p) -> {
+      if (p == null) {
+        assertNull(lastFrame.snapshotGrid().get(x, y));
+      } else {
+        assertNotNull(lastFrame.snapshotGrid().get(x, y));
+      }
+    });
+    if (overflowPolicy == RingBuffer.OverflowPolicy.BLOCK) {
+      assertEquals(0, frameBuilder.getDroppedSnapshots());
+      assertEquals(8d, lastFrame.t(), 1d / FRAME_RATE);
+    }
+  }
+
+}
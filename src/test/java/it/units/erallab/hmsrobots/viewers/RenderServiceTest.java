@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.viewers;
+
+import it.units.erallab.hmsrobots.core.snapshots.Snapshot;
+import it.units.erallab.hmsrobots.tasks.Task;
+import it.units.erallab.hmsrobots.viewers.drawers.Drawer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class RenderServiceTest {
+
+  /**
+   * Test of getFramesPerSecond method, of class RenderService, before any job is rendered.
+   */
+  @Test
+  public void testFramesPerSecondWithoutJobs() {
+    System.out.println("framesPerSecondWithoutJobs");
+    try (RenderService service = new RenderService(64, 48, 0, 20, VideoUtils.EncoderFacility.JCODEC, 1, 1)) {
+      assertEquals(0d, service.getFramesPerSecond());
+    }
+  }
+
+  /**
+   * Test of renderAll method, of class RenderService, with a task which fails after some snapshots.
+   */
+  @Test
+  public void testFailingJob(@TempDir Path dir) {
+    System.out.println("failingJob");
+    Task<String, Object> task = (solution, listener) -> {
+      for (int i = 0; i < 20; i++) {
+        listener.listen(i / 20d, new Snapshot(null, null));
+      }
+      throw new IllegalStateException("Failing task");
+    };
+    File file = dir.resolve("video.mov").toFile();
+    try (RenderService service = new RenderService(64, 48, 0, 20, VideoUtils.EncoderFacility.JCODEC, 1, 1)) {
+      IllegalStateException exception = assertThrows(
+          IllegalStateException.class,
+          () -> service.renderAll(List.of(new RenderService.Job<>(task, "solution", Drawer.clear(), file)))
+      );
+      assertEquals("Failing task", exception.getMessage());
+    }
+    //the truncated video has been deleted
+    assertFalse(file.exists());
+  }
+
+  /**
+   * Test of renderAll method, of class RenderService, with a task which fails while another one is running.
+   */
+  @Test
+  public void testFailingJobCancelsOthers(@TempDir Path dir) throws InterruptedException {
+    System.out.println("failingJobCancelsOthers");
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch stopped = new CountDownLatch(1);
+    Task<String, Object> failingTask = (solution, listener) -> {
+      try {
+        started.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      throw new IllegalStateException("Failing task");
+    };
+    Task<String, Object> endlessTask = (solution, listener) -> {
+      try {
+        started.countDown();
+        for (int i = 0; ; i++) {
+          listener.listen(i / 20d, new Snapshot(null, null));
+        }
+      } finally {
+        stopped.countDown();
+      }
+    };
+    File endlessFile = dir.resolve("endless.mov").toFile();
+    try (RenderService service = new RenderService(64, 48, 0, 20, VideoUtils.EncoderFacility.JCODEC, 2, 2)) {
+      assertThrows(IllegalStateException.class, () -> service.renderAll(List.of(
+          new RenderService.Job<>(failingTask, "failing", Drawer.clear(), dir.resolve("failing.mov").toFile()),
+          new RenderService.Job<>(endlessTask, "endless", Drawer.clear(), endlessFile)
+      )));
+      assertTrue(stopped.await(10, TimeUnit.SECONDS));
+    }
+    //the service waits for the cancelled job, which deletes its video
+    assertFalse(endlessFile.exists());
+  }
+
+  /**
+   * Test of renderAll method, of class RenderService, with more simulation threads than encoding threads.
+   */
+  @Test
+  public void testOpenEncodersBound(@TempDir Path dir) {
+    System.out.println("openEncodersBound");
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    Task<String, Object> task = (solution, listener) -> {
+      maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+      for (int i = 0; i < 20; i++) {
+        listener.listen(i / 20d, new Snapshot(null, null));
+      }
+      running.decrementAndGet();
+      return solution;
+    };
+    try (RenderService service = new RenderService(64, 48, 0, 20, VideoUtils.EncoderFacility.JCODEC, 4, 1)) {
+      List<RenderService.Report> reports = service.renderAll(List.of(
+          new RenderService.Job<>(task, "a", Drawer.clear(), dir.resolve("a.mov").toFile()),
+          new RenderService.Job<>(task, "b", Drawer.clear(), dir.resolve("b.mov").toFile()),
+          new RenderService.Job<>(task, "c", Drawer.clear(), dir.resolve("c.mov").toFile())
+      ));
+      assertEquals(3, reports.size());
+      reports.forEach(r -> assertTrue(r.file().exists()));
+    }
+    assertEquals(1, maxRunning.get());
+  }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2022 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.viewers;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class VideoUtilsTest {
+
+  private static String stub(Path dir, String body) throws IOException {
+    assumeTrue(new File("/bin/sh").canExecute());
+    Path script = dir.resolve("ffmpeg-stub.sh");
+    Files.writeString(script, "#!/bin/sh\nfor last; do :; done\n" + body + "\n");
+    assumeTrue(script.toFile().setExecutable(true));
+    return script.toString();
+  }
+
+  /**
+   * Test of the ffmpeg encoder, with a stub process which copies its input to the output file.
+   */
+  @Test
+  public void testFFMpegEncoder(@TempDir Path dir) throws IOException {
+    System.out.println("ffmpegEncoder");
+    String executable = stub(dir, "echo started >&2\ncat > \"$last\"");
+    File file = dir.resolve("video.mp4").toFile();
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    try (VideoUtils.VideoEncoder encoder = new VideoUtils.FFMpegEncoder(executable, 20, file, 30)) {
+      for (int i = 0; i < 10; i++) {
+        BufferedImage image = new BufferedImage(16, 9, i % 2 == 0 ? BufferedImage.TYPE_3BYTE_BGR : BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < image.getWidth(); x++) {
+          for (int y = 0; y < image.getHeight(); y++) {
+            int rgb = (i * 7 + x * 13 + y * 29) * 0x010305;
+            image.setRGB(x, y, rgb);
+            expected.write((rgb) & 0xFF);
+            expected.write((rgb >> 8) & 0xFF);
+            expected.write((rgb >> 16) & 0xFF);
+          }
+        }
+        encoder.encode(image);
+      }
+    }
+    byte[] written = Files.readAllBytes(file.toPath());
+    assertEquals(10 * 16 * 9 * 3, written.length);
+    //pixels are written row by row: reorder the expected ones, which are column by column
+    byte[] columnMajor = expected.toByteArray();
+    for (int i = 0; i < 10; i++) {
+      for (int x = 0; x < 16; x++) {
+        for (int y = 0; y < 9; y++) {
+          for (int c = 0; c < 3; c++) {
+            assertEquals(
+                columnMajor[((i * 16 + x) * 9 + y) * 3 + c],
+                written[((i * 9 + y) * 16 + x) * 3 + c]
+            );
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Test of the ffmpeg encoder, with a stub process which fails without consuming its input.
+   */
+  @Test
+  public void testFFMpegEncoderFailure(@TempDir Path dir) throws IOException {
+    System.out.println("ffmpegEncoderFailure");
+    String executable = stub(dir, "echo broken codec >&2\nexit 3");
+    File file = dir.resolve("video.mp4").toFile();
+    IOException exception = assertThrows(IOException.class, () -> {
+      try (VideoUtils.VideoEncoder encoder = new VideoUtils.FFMpegEncoder(executable, 20, file, 30)) {
+        for (int i = 0; i < 100; i++) {
+          encoder.encode(new BufferedImage(640, 480, BufferedImage.TYPE_3BYTE_BGR));
+        }
+      }
+    });
+    assertTrue(exception.getMessage().contains("broken codec"), exception.getMessage());
+  }
+
+}